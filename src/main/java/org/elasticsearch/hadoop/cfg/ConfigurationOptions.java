@@ -49,10 +49,31 @@ public interface ConfigurationOptions {
     String ES_BATCH_SIZE_ENTRIES = "es.batch.size.entries";
     String ES_BATCH_SIZE_ENTRIES_DEFAULT = "0";
 
+    /** Whether to adapt the batch size (in bytes) based on the bulk latency and rejections */
+    String ES_BATCH_SIZE_ADAPTIVE = "es.batch.size.adaptive";
+    String ES_BATCH_SIZE_ADAPTIVE_DEFAULT = "false";
+
+    String ES_BATCH_SIZE_BYTES_MIN = "es.batch.size.bytes.min";
+    String ES_BATCH_SIZE_BYTES_MIN_DEFAULT = "1mb";
+
+    String ES_BATCH_SIZE_BYTES_MAX = "es.batch.size.bytes.max";
+    String ES_BATCH_SIZE_BYTES_MAX_DEFAULT = "32mb";
+
+    String ES_BATCH_SIZE_ADAPTIVE_LATENCY = "es.batch.size.adaptive.latency";
+    String ES_BATCH_SIZE_ADAPTIVE_LATENCY_DEFAULT = "2s";
+
     /** Whether to trigger an index refresh after doing batch writing */
     String ES_BATCH_WRITE_REFRESH = "es.batch.write.refresh";
     String ES_BATCH_WRITE_REFRESH_DEFAULT = "true";
 
+    /** Number of bulk requests sent asynchronously (in flight) while the next batch is being filled in */
+    String ES_BATCH_WRITE_CONCURRENCY = "es.batch.write.concurrency";
+    String ES_BATCH_WRITE_CONCURRENCY_DEFAULT = "0";
+
+    /** Whether to send each document directly to the node hosting its primary shard */
+    String ES_BATCH_WRITE_SHARD_ROUTING = "es.batch.write.shard.routing";
+    String ES_BATCH_WRITE_SHARD_ROUTING_DEFAULT = "false";
+
     /** HTTP bulk retries **/
     String ES_BATCH_WRITE_RETRY_COUNT = "es.batch.write.retry.count";
     String ES_BATCH_WRITE_RETRY_COUNT_DEFAULT = "3";
@@ -72,6 +93,16 @@ public interface ConfigurationOptions {
     String ES_HTTP_RETRIES = "es.http.retries";
     String ES_HTTP_RETRIES_DEFAULT = "3";
 
+    /** HTTP connection pool (shared by all connections within the same JVM) */
+    String ES_HTTP_MAX_CONNECTIONS_PER_HOST = "es.http.max.connections.per.host";
+    String ES_HTTP_MAX_CONNECTIONS_PER_HOST_DEFAULT = "10";
+
+    String ES_HTTP_MAX_CONNECTIONS_TOTAL = "es.http.max.connections.total";
+    String ES_HTTP_MAX_CONNECTIONS_TOTAL_DEFAULT = "100";
+
+    String ES_HTTP_IDLE_TIMEOUT = "es.http.idle.timeout";
+    String ES_HTTP_IDLE_TIMEOUT_DEFAULT = "30s";
+
     /** Scroll keep-alive */
     String ES_SCROLL_KEEPALIVE = "es.scroll.keepalive";
     String ES_SCROLL_KEEPALIVE_DEFAULT = "5m";
@@ -80,9 +111,43 @@ public interface ConfigurationOptions {
     String ES_SCROLL_SIZE = "es.scroll.size";
     String ES_SCROLL_SIZE_DEFAULT = "50";
 
+    /** Scroll prefetch (number of pages fetched ahead in the background) */
+    String ES_SCROLL_PREFETCH = "es.scroll.prefetch";
+    String ES_SCROLL_PREFETCH_DEFAULT = "0";
+
+    /** Scroll streaming (decode hits one at a time instead of per page) */
+    String ES_SCROLL_STREAM = "es.scroll.stream";
+    String ES_SCROLL_STREAM_DEFAULT = "false";
+
+    /** Scroll object reuse (decode each hit into the objects of the previous one - implies streaming) */
+    String ES_SCROLL_REUSE = "es.scroll.reuse";
+    String ES_SCROLL_REUSE_DEFAULT = "false";
+
+    /** Input splits - target number of documents per split (shards larger than that are partitioned) */
+    String ES_INPUT_SPLIT_DOCS = "es.input.split.docs";
+    String ES_INPUT_SPLIT_DOCS_DEFAULT = "0";
+
+    /** Input splits - whether to combine shards smaller than the target number of documents */
+    String ES_INPUT_SPLIT_COMBINE = "es.input.split.combine";
+    String ES_INPUT_SPLIT_COMBINE_DEFAULT = "false";
+
+    /** Input splits - field used for partitioning a shard through ranges (by default the _uid hash is used) */
+    String ES_INPUT_SPLIT_FIELD = "es.input.split.field";
+
+    /** Input - whether the predicates of the query engine (Hive/Pig) are pushed down to Elasticsearch as filters */
+    String ES_INPUT_PUSHDOWN = "es.input.pushdown";
+    String ES_INPUT_PUSHDOWN_DEFAULT = "true";
+
     /** Scroll fields */
     String ES_SCROLL_FIELDS = "es.scroll.fields";
 
+    /** Scroll fields - whether to retrieve them through _source filtering (instead of the fields parameter) */
+    String ES_SCROLL_SOURCE_FILTER = "es.scroll.source.filter";
+    String ES_SCROLL_SOURCE_FILTER_DEFAULT = "false";
+
+    /** Scroll fields - fields (or paths) excluded from _source */
+    String ES_SCROLL_SOURCE_EXCLUDE = "es.scroll.source.exclude";
+
     /** Serialization settings */
 
     /** Value writer - setup automatically; can be overridden for custom types */
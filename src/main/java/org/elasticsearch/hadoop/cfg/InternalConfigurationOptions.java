@@ -26,4 +26,10 @@ public interface InternalConfigurationOptions extends ConfigurationOptions {
     String INTERNAL_ES_TARGET_RESOURCE = "es.internal.mr.target.resource";
     String INTERNAL_ES_TARGET_FIELDS = "es.internal.mr.target.fields";
     String INTERNAL_ES_HOSTS = "es.internal.hosts";
+    // filter (in JSON format) pushed down by the query engine (Hive/Pig)
+    String INTERNAL_ES_QUERY_FILTER = "es.internal.query.filter";
+    // whether the query engine needs only the number of matching documents (and not their content)
+    String INTERNAL_ES_QUERY_COUNT = "es.internal.query.count";
+    // statistics of the target resource (docs,bytes,resource) - cached for the query planners
+    String INTERNAL_ES_RESOURCE_STATS = "es.internal.resource.stats";
 }
@@ -71,6 +71,18 @@ public abstract class Settings implements InternalConfigurationOptions {
         return Integer.valueOf(getProperty(ES_HTTP_RETRIES, ES_HTTP_RETRIES_DEFAULT));
     }
 
+    public int getHttpMaxConnectionsPerHost() {
+        return Integer.valueOf(getProperty(ES_HTTP_MAX_CONNECTIONS_PER_HOST, ES_HTTP_MAX_CONNECTIONS_PER_HOST_DEFAULT));
+    }
+
+    public int getHttpMaxConnectionsTotal() {
+        return Integer.valueOf(getProperty(ES_HTTP_MAX_CONNECTIONS_TOTAL, ES_HTTP_MAX_CONNECTIONS_TOTAL_DEFAULT));
+    }
+
+    public long getHttpIdleTimeout() {
+        return TimeValue.parseTimeValue(getProperty(ES_HTTP_IDLE_TIMEOUT, ES_HTTP_IDLE_TIMEOUT_DEFAULT)).getMillis();
+    }
+
     public int getBatchSizeInBytes() {
         return ByteSizeValue.parseBytesSizeValue(getProperty(ES_BATCH_SIZE_BYTES, ES_BATCH_SIZE_BYTES_DEFAULT)).bytesAsInt();
     }
@@ -79,6 +91,30 @@ public abstract class Settings implements InternalConfigurationOptions {
         return Integer.valueOf(getProperty(ES_BATCH_SIZE_ENTRIES, ES_BATCH_SIZE_ENTRIES_DEFAULT));
     }
 
+    public boolean getBatchSizeAdaptive() {
+        return Booleans.parseBoolean(getProperty(ES_BATCH_SIZE_ADAPTIVE, ES_BATCH_SIZE_ADAPTIVE_DEFAULT));
+    }
+
+    public int getBatchSizeInBytesMin() {
+        return ByteSizeValue.parseBytesSizeValue(getProperty(ES_BATCH_SIZE_BYTES_MIN, ES_BATCH_SIZE_BYTES_MIN_DEFAULT)).bytesAsInt();
+    }
+
+    public int getBatchSizeInBytesMax() {
+        return ByteSizeValue.parseBytesSizeValue(getProperty(ES_BATCH_SIZE_BYTES_MAX, ES_BATCH_SIZE_BYTES_MAX_DEFAULT)).bytesAsInt();
+    }
+
+    public long getBatchSizeAdaptiveLatency() {
+        return TimeValue.parseTimeValue(getProperty(ES_BATCH_SIZE_ADAPTIVE_LATENCY, ES_BATCH_SIZE_ADAPTIVE_LATENCY_DEFAULT)).getMillis();
+    }
+
+    public int getBatchWriteConcurrency() {
+        return Integer.valueOf(getProperty(ES_BATCH_WRITE_CONCURRENCY, ES_BATCH_WRITE_CONCURRENCY_DEFAULT));
+    }
+
+    public boolean getBatchWriteShardRouting() {
+        return Booleans.parseBoolean(getProperty(ES_BATCH_WRITE_SHARD_ROUTING, ES_BATCH_WRITE_SHARD_ROUTING_DEFAULT));
+    }
+
     public int getBatchWriteRetryCount() {
         return Integer.parseInt(getProperty(ES_BATCH_WRITE_RETRY_COUNT, ES_BATCH_WRITE_RETRY_COUNT_DEFAULT));
     }
@@ -103,11 +139,55 @@ public abstract class Settings implements InternalConfigurationOptions {
         return Long.valueOf(getProperty(ES_SCROLL_SIZE, ES_SCROLL_SIZE_DEFAULT));
     }
 
+    public int getScrollPrefetch() {
+        return Integer.valueOf(getProperty(ES_SCROLL_PREFETCH, ES_SCROLL_PREFETCH_DEFAULT));
+    }
+
+    public boolean getScrollStream() {
+        return Booleans.parseBoolean(getProperty(ES_SCROLL_STREAM, ES_SCROLL_STREAM_DEFAULT));
+    }
+
+    public boolean getScrollReuse() {
+        return Booleans.parseBoolean(getProperty(ES_SCROLL_REUSE, ES_SCROLL_REUSE_DEFAULT));
+    }
+
+    public long getInputSplitDocs() {
+        return Long.valueOf(getProperty(ES_INPUT_SPLIT_DOCS, ES_INPUT_SPLIT_DOCS_DEFAULT));
+    }
+
+    public boolean getInputSplitCombine() {
+        return Booleans.parseBoolean(getProperty(ES_INPUT_SPLIT_COMBINE, ES_INPUT_SPLIT_COMBINE_DEFAULT));
+    }
+
+    public String getInputSplitField() {
+        return getProperty(ES_INPUT_SPLIT_FIELD);
+    }
+
     public String getScrollFields() {
         String internalFields = getProperty(INTERNAL_ES_TARGET_FIELDS);
         return (StringUtils.hasText(internalFields) ? internalFields : getProperty(ES_SCROLL_FIELDS));
     }
 
+    public boolean getInputPushdown() {
+        return Booleans.parseBoolean(getProperty(ES_INPUT_PUSHDOWN, ES_INPUT_PUSHDOWN_DEFAULT));
+    }
+
+    public String getQueryFilter() {
+        return getProperty(INTERNAL_ES_QUERY_FILTER);
+    }
+
+    public boolean getQueryCount() {
+        return Booleans.parseBoolean(getProperty(INTERNAL_ES_QUERY_COUNT, "false"));
+    }
+
+    public boolean getScrollSourceFilter() {
+        return Booleans.parseBoolean(getProperty(ES_SCROLL_SOURCE_FILTER, ES_SCROLL_SOURCE_FILTER_DEFAULT));
+    }
+
+    public String getScrollSourceExclude() {
+        return getProperty(ES_SCROLL_SOURCE_EXCLUDE);
+    }
+
     public String getSerializerValueWriterClassName() {
         return getProperty(ES_SERIALIZATION_WRITER_VALUE_CLASS);
     }
@@ -23,7 +23,14 @@ import java.io.DataOutput;
 import java.io.IOException;
 import java.util.Map;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.fs.ContentSummary;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.ql.exec.Utilities;
+import org.apache.hadoop.hive.ql.io.ContentSummaryInputFormat;
+import org.apache.hadoop.hive.ql.plan.ExprNodeDesc;
+import org.apache.hadoop.hive.ql.plan.TableScanDesc;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.mapred.FileInputFormat;
@@ -31,7 +38,12 @@ import org.apache.hadoop.mapred.FileSplit;
 import org.apache.hadoop.mapred.InputSplit;
 import org.apache.hadoop.mapred.JobConf;
 import org.apache.hadoop.mapred.Reporter;
+import org.elasticsearch.hadoop.cfg.InternalConfigurationOptions;
+import org.elasticsearch.hadoop.cfg.SettingsManager;
 import org.elasticsearch.hadoop.mr.EsInputFormat;
+import org.elasticsearch.hadoop.rest.InitializationUtils;
+import org.elasticsearch.hadoop.rest.dto.ShardStats;
+import org.elasticsearch.hadoop.util.StringUtils;
 
 /**
  * Hive specific InputFormat. Since Hive code base makes a lot of assumptions about the tables being actual files in HDFS (using instanceof checks without proper else) this class tries to 'fix' this by
@@ -41,7 +53,9 @@ import org.elasticsearch.hadoop.mr.EsInputFormat;
 // A quick example would be {@link org.apache.hadoop.hive.ql.io.HiveInputFormat.HiveInputSplit#getPath()} which, in case the actual InputSplit is not a
 // {@link org.apache.hadoop.mapred.FileSplit}, returns an invalid Path.
 
-public class EsHiveInputFormat extends EsInputFormat<Text, Map<Writable, Writable>> {
+public class EsHiveInputFormat extends EsInputFormat<Text, Map<Writable, Writable>> implements ContentSummaryInputFormat {
+
+    private static Log log = LogFactory.getLog(EsHiveInputFormat.class);
 
     static class ESHiveSplit extends FileSplit {
         InputSplit delegate;
@@ -58,8 +72,11 @@ public class EsHiveInputFormat extends EsInputFormat<Text, Map<Writable, Writabl
         }
 
         public long getLength() {
-            // TODO: can this be delegated?
-            return 1L;
+            try {
+                return delegate.getLength();
+            } catch (IOException ex) {
+                return 1L;
+            }
         }
 
         public String[] getLocations() throws IOException {
@@ -89,6 +106,8 @@ public class EsHiveInputFormat extends EsInputFormat<Text, Map<Writable, Writabl
 
     @Override
     public FileSplit[] getSplits(JobConf job, int numSplits) throws IOException {
+        pushFilter(job);
+
         // decorate original splits as FileSplit
         InputSplit[] shardSplits = super.getSplits(job, numSplits);
         FileSplit[] wrappers = new FileSplit[shardSplits.length];
@@ -101,6 +120,42 @@ public class EsHiveInputFormat extends EsInputFormat<Text, Map<Writable, Writabl
 
     @Override
     public WritableShardRecordReader getRecordReader(InputSplit split, JobConf job, Reporter reporter) {
+        pushFilter(job);
+        pushCount(job);
         return new WritableShardRecordReader(((ESHiveSplit) split).delegate, job, reporter);
     }
+
+    // used by Hive for estimating the size of the table (such as when deciding whether a join can be done map-side)
+    @Override
+    public ContentSummary getContentSummary(Path p, JobConf job) throws IOException {
+        ShardStats stats = InitializationUtils.resourceStats(SettingsManager.loadFrom(job), log);
+        long docs = (stats != null ? stats.getDocs() : 0);
+        long size = (stats != null ? stats.getSizeInBytes() : 0);
+
+        if (log.isTraceEnabled()) {
+            log.trace(String.format("Reporting [%d] bytes ([%d] docs) for table at [%s]", size, docs, p));
+        }
+        // the index is seen as one file
+        return new ContentSummary(size, 1, 0);
+    }
+
+    // translates the predicate pushed down by Hive (see EsStorageHandler#decomposePredicate) into a query filter
+    private static void pushFilter(JobConf job) {
+        String serialized = job.get(TableScanDesc.FILTER_EXPR_CONF_STR);
+        if (!StringUtils.hasText(serialized)) {
+            return;
+        }
+
+        ExprNodeDesc predicate = Utilities.deserializeExpression(serialized, job);
+        job.set(InternalConfigurationOptions.INTERNAL_ES_QUERY_FILTER,
+                HiveFilters.toFilter(predicate, HiveUtils.alias(SettingsManager.loadFrom(job))));
+    }
+
+    // when no columns are needed (such as for SELECT COUNT(*)), only the number of matching documents is read
+    // Hive 0.12 and lower do not distinguish between no and all columns, so this applies to 0.13+ only
+    private static void pushCount(JobConf job) {
+        boolean noColumns = "false".equals(job.get(HiveConstants.READ_ALL_COLUMNS))
+                && !StringUtils.hasText(job.get(HiveConstants.READ_COLUMN_IDS));
+        job.setBoolean(InternalConfigurationOptions.INTERNAL_ES_QUERY_COUNT, noColumns && SettingsManager.loadFrom(job).getInputPushdown());
+    }
 }
\ No newline at end of file
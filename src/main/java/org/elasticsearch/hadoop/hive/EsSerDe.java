@@ -63,17 +63,17 @@ public class EsSerDe implements SerDe {
     private BytesArray scratchPad = new BytesArray(512);
     private HiveType hiveType = new HiveType(null, null);
     private HiveBytesArrayWritable result = new HiveBytesArrayWritable();
-    private StructTypeInfo structTypeInfo;
     private FieldAlias alias;
     private Command command;
+    // raw size of the last serialized row
+    private final SerDeStats stats = new SerDeStats();
 
     private boolean writeInitialized = false;
 
     @Override
     public void initialize(Configuration conf, Properties tbl) throws SerDeException {
-        inspector = HiveUtils.structObjectInspector(tbl);
-        structTypeInfo = HiveUtils.typeInfo(inspector);
         alias = HiveUtils.alias(new PropertiesSettings(tbl));
+        inspector = HiveUtils.structObjectInspector(tbl, alias);
         this.tableProperties = tbl;
     }
 
@@ -82,7 +82,8 @@ public class EsSerDe implements SerDe {
         if (blob == null || blob instanceof NullWritable) {
             return null;
         }
-        return hiveFromWritable(structTypeInfo, blob, alias);
+        // the document (map) is resolved by the inspector
+        return blob;
     }
 
     @Override
@@ -92,8 +93,8 @@ public class EsSerDe implements SerDe {
 
     @Override
     public SerDeStats getSerDeStats() {
-        // TODO: can compute serialize stats but not deserialized ones
-        return null;
+        // only serialization stats are available; the table size is reported through EsHiveInputFormat#getContentSummary
+        return stats;
     }
 
     @Override
@@ -112,6 +113,7 @@ public class EsSerDe implements SerDe {
 
         command.write(hiveType).copyTo(scratchPad);
         result.setContent(scratchPad);
+        stats.setRawDataSize(scratchPad.length());
         return result;
     }
 
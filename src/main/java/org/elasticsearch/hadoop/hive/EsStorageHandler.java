@@ -25,9 +25,13 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hive.metastore.HiveMetaHook;
 import org.apache.hadoop.hive.ql.metadata.DefaultStorageHandler;
+import org.apache.hadoop.hive.ql.metadata.HiveStoragePredicateHandler;
+import org.apache.hadoop.hive.ql.plan.ExprNodeDesc;
 import org.apache.hadoop.hive.ql.plan.TableDesc;
+import org.apache.hadoop.hive.serde2.Deserializer;
 import org.apache.hadoop.hive.serde2.SerDe;
 import org.apache.hadoop.mapred.InputFormat;
+import org.apache.hadoop.mapred.JobConf;
 import org.apache.hadoop.mapred.OutputFormat;
 import org.elasticsearch.hadoop.cfg.InternalConfigurationOptions;
 import org.elasticsearch.hadoop.cfg.Settings;
@@ -47,7 +51,7 @@ import static org.elasticsearch.hadoop.hive.HiveConstants.*;
  * or passed to {@link #EsStorageHandler} through Hive <tt>TBLPROPERTIES</tt>
  */
 @SuppressWarnings({ "deprecation", "rawtypes" })
-public class EsStorageHandler extends DefaultStorageHandler {
+public class EsStorageHandler extends DefaultStorageHandler implements HiveStoragePredicateHandler {
 
     private static Log log = LogFactory.getLog(EsStorageHandler.class);
 
@@ -108,6 +112,20 @@ public class EsStorageHandler extends DefaultStorageHandler {
                 "no table location [%s] declared by Hive resulting in abnormal execution;", TABLE_LOCATION));
     }
 
+    @Override
+    public DecomposedPredicate decomposePredicate(JobConf jobConf, Deserializer deserializer, ExprNodeDesc predicate) {
+        if (!SettingsManager.loadFrom(jobConf).getInputPushdown()) {
+            return null;
+        }
+
+        DecomposedPredicate decomposed = HiveFilters.decompose(predicate);
+        if (decomposed != null && log.isDebugEnabled()) {
+            log.debug(String.format("Pushing down predicate [%s]; residual [%s]", decomposed.pushedPredicate.getExprString(),
+                    (decomposed.residualPredicate != null ? decomposed.residualPredicate.getExprString() : null)));
+        }
+        return decomposed;
+    }
+
     @Override
     @Deprecated
     public void configureTableJobProperties(TableDesc tableDesc, Map<String, String> jobProperties) {
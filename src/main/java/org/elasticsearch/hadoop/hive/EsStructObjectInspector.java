@@ -0,0 +1,83 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.hadoop.hive;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.StandardStructObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.StructField;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.elasticsearch.hadoop.util.FieldAlias;
+
+/**
+ * Struct inspector working directly on the documents read from Elasticsearch (as {@link Map}s). Each column is resolved (and converted)
+ * only when Hive asks for it, through a field name computed upfront, so the columns not used by a query cost nothing.
+ * Other (list based) structs are handled as usual.
+ */
+class EsStructObjectInspector extends StandardStructObjectInspector {
+
+    private final TypeInfo[] types;
+    private final Text[] names;
+    private final FieldAlias alias;
+
+    EsStructObjectInspector(List<String> columnNames, List<ObjectInspector> inspectors, List<TypeInfo> types, FieldAlias alias) {
+        super(columnNames, inspectors);
+        this.types = types.toArray(new TypeInfo[types.size()]);
+        this.alias = alias;
+
+        names = new Text[columnNames.size()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = new Text(alias.toES(columnNames.get(i)));
+        }
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Override
+    public Object getStructFieldData(Object data, StructField fieldRef) {
+        if (!(data instanceof Map)) {
+            return super.getStructFieldData(data, fieldRef);
+        }
+        return column((Map) data, ((MyField) fieldRef).getFieldID());
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Override
+    public List<Object> getStructFieldsDataAsList(Object data) {
+        if (!(data instanceof Map)) {
+            return super.getStructFieldsDataAsList(data);
+        }
+
+        List<Object> values = new ArrayList<Object>(names.length);
+        for (int i = 0; i < names.length; i++) {
+            values.add(column((Map) data, i));
+        }
+        return values;
+    }
+
+    @SuppressWarnings("rawtypes")
+    private Object column(Map document, int index) {
+        // primitives are returned as is; nested types are converted on the spot
+        return EsSerDe.hiveFromWritable(types[index], (Writable) document.get(names[index]), alias);
+    }
+}
@@ -32,4 +32,8 @@ interface HiveConstants {
     String VARCHAR_WRITABLE = "org.apache.hadoop.hive.serde2.io.HiveVarcharWritable";
     String TABLE_LOCATION = "location";
     String MAPPING_NAMES = "es.mapping.names";
+
+    // column projection - the latter was introduced in Hive 0.13 (before it, no column ids meant all columns)
+    String READ_COLUMN_IDS = "hive.io.file.readcolumn.ids";
+    String READ_ALL_COLUMNS = "hive.io.file.read.all.columns";
 }
@@ -24,45 +24,87 @@ import java.util.Map;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.StructField;
 import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.StringObjectInspector;
 import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Text;
 import org.elasticsearch.hadoop.cfg.Settings;
 import org.elasticsearch.hadoop.serialization.field.ConstantFieldExtractor;
 import org.elasticsearch.hadoop.util.Assert;
+import org.elasticsearch.hadoop.util.BytesArray;
 import org.elasticsearch.hadoop.util.StringUtils;
 
 public class HiveFieldExtractor extends ConstantFieldExtractor {
 
     private String fieldName;
 
+    // field resolved against the last seen inspector (which is typically the same across rows)
+    private StructObjectInspector soi;
+    private StructField field;
+    private StringObjectInspector stringInspector;
+
     @Override
     protected String extractField(Object target) {
-        if (target instanceof HiveType) {
-            HiveType type = (HiveType) target;
-            ObjectInspector inspector = type.getObjectInspector();
-            if (inspector instanceof StructObjectInspector) {
-                StructObjectInspector soi = (StructObjectInspector) inspector;
-                StructField field = soi.getStructFieldRef(fieldName);
-                ObjectInspector foi = field.getFieldObjectInspector();
-                Assert.isTrue(foi.getCategory() == ObjectInspector.Category.PRIMITIVE,
-                        String.format("Field [%s] needs to be a primitive; found [%s]", fieldName, foi.getTypeName()));
-
-                // expecting a writeable - simply do a toString
-                Object data = soi.getStructFieldData(type.getObject(), field);
-                if (data == null || data instanceof NullWritable) {
-                    return StringUtils.EMPTY;
-                }
-                return data.toString();
+        if (target instanceof HiveType && resolve((HiveType) target)) {
+            // expecting a writeable - simply do a toString
+            Object data = soi.getStructFieldData(((HiveType) target).getObject(), field);
+            if (data == null || data instanceof NullWritable) {
+                return StringUtils.EMPTY;
             }
+            return data.toString();
         }
 
         return null;
     }
 
+    @Override
+    protected boolean extractField(Object target, BytesArray to) {
+        if (target instanceof HiveType && resolve((HiveType) target)) {
+            Object data = soi.getStructFieldData(((HiveType) target).getObject(), field);
+            if (data == null || data instanceof NullWritable) {
+                to.reset();
+                return true;
+            }
+            // strings are copied as is (Text is already UTF-8)
+            if (stringInspector != null) {
+                Text text = stringInspector.getPrimitiveWritableObject(data);
+                to.reset();
+                to.add(text.getBytes(), 0, text.getLength());
+                return true;
+            }
+            to.bytes(data.toString());
+            return true;
+        }
+
+        return false;
+    }
+
+    private boolean resolve(HiveType type) {
+        ObjectInspector inspector = type.getObjectInspector();
+        if (inspector == soi) {
+            return true;
+        }
+        if (!(inspector instanceof StructObjectInspector)) {
+            return false;
+        }
+
+        StructObjectInspector structInspector = (StructObjectInspector) inspector;
+        StructField structField = structInspector.getStructFieldRef(fieldName);
+        ObjectInspector foi = structField.getFieldObjectInspector();
+        Assert.isTrue(foi.getCategory() == ObjectInspector.Category.PRIMITIVE,
+                String.format("Field [%s] needs to be a primitive; found [%s]", fieldName, foi.getTypeName()));
+
+        soi = structInspector;
+        field = structField;
+        stringInspector = (foi instanceof StringObjectInspector ? (StringObjectInspector) foi : null);
+        return true;
+    }
+
     @Override
     public void setSettings(Settings settings) {
         super.setSettings(settings);
         Map<String, String> columnNames = HiveUtils.columnMap(settings);
         // replace column name with _colX (which is what Hive uses during serialization)
         fieldName = columnNames.get(getFieldName().toLowerCase(Locale.ENGLISH));
+        soi = null;
     }
 }
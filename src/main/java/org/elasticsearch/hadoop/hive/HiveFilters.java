@@ -0,0 +1,373 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.hadoop.hive;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.hive.ql.metadata.HiveStoragePredicateHandler.DecomposedPredicate;
+import org.apache.hadoop.hive.ql.plan.ExprNodeColumnDesc;
+import org.apache.hadoop.hive.ql.plan.ExprNodeConstantDesc;
+import org.apache.hadoop.hive.ql.plan.ExprNodeDesc;
+import org.apache.hadoop.hive.ql.plan.ExprNodeGenericFuncDesc;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFIn;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPAnd;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPEqual;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPEqualOrGreaterThan;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPEqualOrLessThan;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPGreaterThan;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPLessThan;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPNotNull;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPNull;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPOr;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector.Category;
+import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector.PrimitiveCategory;
+import org.apache.hadoop.hive.serde2.typeinfo.PrimitiveTypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.elasticsearch.hadoop.serialization.SerializationException;
+import org.elasticsearch.hadoop.util.FieldAlias;
+
+/**
+ * Translates Hive predicates into Elasticsearch filters. Supports comparisons, IN, IS [NOT] NULL and AND/OR on primitive
+ * columns. Predicates on strings and floating point columns are approximated (strings are matched through their analyzed
+ * terms, floats are compared in their ES representation); these are pushed down but also kept for Hive to evaluate.
+ */
+abstract class HiveFilters {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    // used only for checking whether a predicate can be translated
+    private static final FieldAlias NO_ALIAS = new FieldAlias();
+
+    // largest integers represented exactly by float/double
+    private static final long FLOAT_EXACT = 1L << 24;
+    private static final long DOUBLE_EXACT = 1L << 53;
+
+    /**
+     * Splits the given predicate into the part pushed down to Elasticsearch and the part evaluated by Hive.
+     *
+     * @param predicate Hive predicate
+     * @return the decomposed predicate or null if nothing can be pushed down
+     */
+    static DecomposedPredicate decompose(ExprNodeDesc predicate) {
+        List<ExprNodeDesc> conjuncts = new ArrayList<ExprNodeDesc>();
+        flattenAnd(predicate, conjuncts);
+
+        List<ExprNodeDesc> pushed = new ArrayList<ExprNodeDesc>();
+        List<ExprNodeDesc> residual = new ArrayList<ExprNodeDesc>();
+
+        for (ExprNodeDesc conjunct : conjuncts) {
+            if (translate(conjunct, NO_ALIAS) != null) {
+                pushed.add(conjunct);
+                if (!isExact(conjunct)) {
+                    residual.add(conjunct);
+                }
+            }
+            else {
+                residual.add(conjunct);
+            }
+        }
+
+        if (pushed.isEmpty()) {
+            return null;
+        }
+
+        DecomposedPredicate decomposed = new DecomposedPredicate();
+        decomposed.pushedPredicate = and(pushed);
+        decomposed.residualPredicate = and(residual);
+        return decomposed;
+    }
+
+    /**
+     * Translates the given (pushed) predicate into an Elasticsearch filter.
+     *
+     * @param predicate predicate returned by {@link #decompose(ExprNodeDesc)}
+     * @param alias column to field name mapping
+     * @return the filter in JSON format
+     */
+    static String toFilter(ExprNodeDesc predicate, FieldAlias alias) {
+        Object filter = translate(predicate, alias);
+        if (filter == null) {
+            throw new IllegalArgumentException(String.format("Cannot translate pushed predicate [%s]", predicate.getExprString()));
+        }
+        try {
+            return MAPPER.writeValueAsString(filter);
+        } catch (IOException ex) {
+            throw new SerializationException(String.format("Cannot serialize filter for predicate [%s]", predicate.getExprString()), ex);
+        }
+    }
+
+    private static void flattenAnd(ExprNodeDesc expr, List<ExprNodeDesc> conjuncts) {
+        if (expr instanceof ExprNodeGenericFuncDesc && ((ExprNodeGenericFuncDesc) expr).getGenericUDF() instanceof GenericUDFOPAnd) {
+            for (ExprNodeDesc child : expr.getChildren()) {
+                flattenAnd(child, conjuncts);
+            }
+        }
+        else {
+            conjuncts.add(expr);
+        }
+    }
+
+    private static ExprNodeDesc and(List<ExprNodeDesc> exprs) {
+        if (exprs.isEmpty()) {
+            return null;
+        }
+        // the AND operator is binary
+        ExprNodeDesc result = exprs.get(0);
+        for (int i = 1; i < exprs.size(); i++) {
+            result = new ExprNodeGenericFuncDesc(TypeInfoFactory.booleanTypeInfo, new GenericUDFOPAnd(), Arrays.asList(result, exprs.get(i)));
+        }
+        return result;
+    }
+
+    private static Object translate(ExprNodeDesc expr, FieldAlias alias) {
+        if (!(expr instanceof ExprNodeGenericFuncDesc)) {
+            return null;
+        }
+
+        GenericUDF udf = ((ExprNodeGenericFuncDesc) expr).getGenericUDF();
+        List<ExprNodeDesc> args = expr.getChildren();
+
+        if (udf instanceof GenericUDFOPAnd || udf instanceof GenericUDFOPOr) {
+            List<Object> filters = new ArrayList<Object>(args.size());
+            for (ExprNodeDesc arg : args) {
+                Object filter = translate(arg, alias);
+                if (filter == null) {
+                    return null;
+                }
+                filters.add(filter);
+            }
+            return Collections.singletonMap((udf instanceof GenericUDFOPAnd ? "and" : "or"), filters);
+        }
+
+        if (udf instanceof GenericUDFOPNull || udf instanceof GenericUDFOPNotNull) {
+            String field = field(args.get(0), alias);
+            // empty strings can be read as null, which the filter would miss
+            if (field == null || (udf instanceof GenericUDFOPNull && isString(args.get(0)))) {
+                return null;
+            }
+            return Collections.singletonMap((udf instanceof GenericUDFOPNull ? "missing" : "exists"), Collections.singletonMap("field", field));
+        }
+
+        if (udf instanceof GenericUDFIn) {
+            String field = field(args.get(0), alias);
+            if (field == null) {
+                return null;
+            }
+            List<Object> values = new ArrayList<Object>(args.size() - 1);
+            for (int i = 1; i < args.size(); i++) {
+                Object value = constant(args.get(i), args.get(0));
+                if (value == null) {
+                    return null;
+                }
+                values.add(value);
+            }
+
+            if (!isString(args.get(0))) {
+                return Collections.singletonMap("terms", Collections.singletonMap(field, values));
+            }
+            List<Object> matches = new ArrayList<Object>(values.size());
+            for (Object value : values) {
+                matches.add(match(field, value));
+            }
+            return Collections.singletonMap("or", matches);
+        }
+
+        String op = comparison(udf);
+        if (op == null || args.size() != 2) {
+            return null;
+        }
+
+        ExprNodeDesc column = args.get(0);
+        ExprNodeDesc constant = args.get(1);
+        // normalize (constant op column) to (column op constant)
+        if (!(column instanceof ExprNodeColumnDesc)) {
+            column = args.get(1);
+            constant = args.get(0);
+            op = flip(op);
+        }
+
+        String field = field(column, alias);
+        Object value = constant(constant, column);
+        if (field == null || value == null) {
+            return null;
+        }
+
+        if (isString(column)) {
+            // range on analyzed terms do not match the Hive semantics
+            return ("eq".equals(op) ? match(field, value) : null);
+        }
+        if ("eq".equals(op)) {
+            return Collections.singletonMap("term", Collections.singletonMap(field, value));
+        }
+        return Collections.singletonMap("range", Collections.singletonMap(field, Collections.singletonMap(op, value)));
+    }
+
+    // approximates string equality through a match query (all terms need to be present) - a superset of the Hive results
+    private static Object match(String field, Object value) {
+        Map<String, Object> match = new LinkedHashMap<String, Object>();
+        match.put("query", value);
+        match.put("operator", "and");
+        // values analyzed to no terms (such as empty strings or stop words) would otherwise match nothing
+        match.put("zero_terms_query", "all");
+        return Collections.singletonMap("query", Collections.singletonMap("match", Collections.singletonMap(field, match)));
+    }
+
+    private static String comparison(GenericUDF udf) {
+        if (udf instanceof GenericUDFOPEqual) {
+            return "eq";
+        }
+        if (udf instanceof GenericUDFOPLessThan) {
+            return "lt";
+        }
+        if (udf instanceof GenericUDFOPEqualOrLessThan) {
+            return "lte";
+        }
+        if (udf instanceof GenericUDFOPGreaterThan) {
+            return "gt";
+        }
+        if (udf instanceof GenericUDFOPEqualOrGreaterThan) {
+            return "gte";
+        }
+        return null;
+    }
+
+    private static String flip(String op) {
+        if (op.startsWith("l")) {
+            return "g" + op.substring(1);
+        }
+        if (op.startsWith("g")) {
+            return "l" + op.substring(1);
+        }
+        return op;
+    }
+
+    private static String field(ExprNodeDesc expr, FieldAlias alias) {
+        if (!(expr instanceof ExprNodeColumnDesc) || primitive(expr) == null) {
+            return null;
+        }
+        ExprNodeColumnDesc column = (ExprNodeColumnDesc) expr;
+        if (column.getIsPartitionColOrVirtualCol()) {
+            return null;
+        }
+        return alias.toES(column.getColumn());
+    }
+
+    // returns the constant converted to the column type or null if the conversion is lossy
+    // (Hive does not add casts for comparisons so the types can differ, yet ES converts the value to the field type)
+    private static Object constant(ExprNodeDesc expr, ExprNodeDesc column) {
+        if (!(expr instanceof ExprNodeConstantDesc)) {
+            return null;
+        }
+        Object value = ((ExprNodeConstantDesc) expr).getValue();
+        PrimitiveCategory category = primitive(column);
+        if (value == null || category == null) {
+            return null;
+        }
+
+        switch (category) {
+        case STRING:
+            return (value instanceof String ? value : null);
+        case BOOLEAN:
+            return (value instanceof Boolean ? value : null);
+        case BYTE:
+            return integral(value, Byte.MIN_VALUE, Byte.MAX_VALUE);
+        case SHORT:
+            return integral(value, Short.MIN_VALUE, Short.MAX_VALUE);
+        case INT:
+            return integral(value, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        case LONG:
+            return integral(value, Long.MIN_VALUE, Long.MAX_VALUE);
+        case FLOAT:
+            // double constants are never pushed - the float stored by ES compares differently than in Hive
+            if (value instanceof Float) {
+                return value;
+            }
+            return integral(value, -FLOAT_EXACT, FLOAT_EXACT);
+        case DOUBLE:
+            if (value instanceof Double) {
+                return value;
+            }
+            if (value instanceof Float) {
+                // widen explicitly so the value is not serialized in its (shorter) float form
+                return Double.valueOf(((Float) value).doubleValue());
+            }
+            return integral(value, -DOUBLE_EXACT, DOUBLE_EXACT);
+        default:
+            return null;
+        }
+    }
+
+    private static Object integral(Object value, long min, long max) {
+        if (value instanceof Byte || value instanceof Short || value instanceof Integer || value instanceof Long) {
+            long l = ((Number) value).longValue();
+            return (l >= min && l <= max ? value : null);
+        }
+        return null;
+    }
+
+    private static PrimitiveCategory primitive(ExprNodeDesc expr) {
+        TypeInfo type = expr.getTypeInfo();
+        if (type == null || type.getCategory() != Category.PRIMITIVE) {
+            return null;
+        }
+        PrimitiveCategory category = ((PrimitiveTypeInfo) type).getPrimitiveCategory();
+        switch (category) {
+        case BOOLEAN:
+        case BYTE:
+        case SHORT:
+        case INT:
+        case LONG:
+        case FLOAT:
+        case DOUBLE:
+        case STRING:
+            return category;
+        default:
+            return null;
+        }
+    }
+
+    private static boolean isString(ExprNodeDesc expr) {
+        return primitive(expr) == PrimitiveCategory.STRING;
+    }
+
+    // whether the filter returns exactly the rows matched by the predicate
+    private static boolean isExact(ExprNodeDesc expr) {
+        if (expr instanceof ExprNodeColumnDesc) {
+            PrimitiveCategory category = primitive(expr);
+            return (category != PrimitiveCategory.STRING && category != PrimitiveCategory.FLOAT && category != PrimitiveCategory.DOUBLE);
+        }
+        List<ExprNodeDesc> children = expr.getChildren();
+        if (children != null) {
+            for (ExprNodeDesc child : children) {
+                if (!isExact(child)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
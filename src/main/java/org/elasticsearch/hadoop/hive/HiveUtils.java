@@ -48,6 +48,14 @@ abstract class HiveUtils {
             TimestampWritable.class.getClassLoader());
 
     static StandardStructObjectInspector structObjectInspector(Properties tableProperties) {
+        return structObjectInspector(tableProperties, null);
+    }
+
+    /**
+     * Returns the inspector for the table rows. If an alias is given, the inspector works directly on the documents read from
+     * Elasticsearch (see {@link EsStructObjectInspector}).
+     */
+    static StandardStructObjectInspector structObjectInspector(Properties tableProperties, FieldAlias alias) {
         // extract column info - don't use Hive constants as they were renamed in 0.9 breaking compatibility
         // the column names are saved as the given inspector to #serialize doesn't preserves them (maybe because it's an external table)
         // use the class since StructType requires it ...
@@ -61,6 +69,9 @@ abstract class HiveUtils {
             inspectors.add(TypeInfoUtils.getStandardWritableObjectInspectorFromTypeInfo(typeInfo));
         }
 
+        if (alias != null) {
+            return new EsStructObjectInspector(columnNames, inspectors, colTypes, alias);
+        }
         return ObjectInspectorFactory.getStandardStructObjectInspector(columnNames, inspectors);
     }
 
@@ -27,8 +27,17 @@ import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.StructField;
 import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.BooleanObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.ByteObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.DoubleObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.FloatObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.IntObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.LongObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.ShortObjectInspector;
+import org.apache.hadoop.io.Text;
 import org.apache.hadoop.io.Writable;
 import org.elasticsearch.hadoop.cfg.Settings;
+import org.elasticsearch.hadoop.serialization.FieldName;
 import org.elasticsearch.hadoop.serialization.Generator;
 import org.elasticsearch.hadoop.serialization.SettingsAware;
 import org.elasticsearch.hadoop.serialization.builder.ValueWriter;
@@ -37,6 +46,9 @@ import org.elasticsearch.hadoop.util.FieldAlias;
 /**
  * Main value writer for hive. However since Hive expects a Writable type to be passed to the record reader,
  * the raw JSON data needs to be wrapped (and unwrapped by {@link HiveBytesArrayWritable}).
+ * <p/>
+ * Since Hive uses the same {@link ObjectInspector} for all the rows, the writer compiles it (once) into a tree of
+ * type-specific writers, with the struct field names already aliased and encoded, which is then used for each row.
  */
 public class HiveValueWriter implements SettingsAware, ValueWriter<HiveType> {
 
@@ -44,6 +56,10 @@ public class HiveValueWriter implements SettingsAware, ValueWriter<HiveType> {
     private final ValueWriter<Writable> writableWriter;
     private FieldAlias alias;
 
+    // writer compiled for the last seen inspector
+    private ObjectInspector compiledInspector;
+    private OIWriter compiledWriter;
+
     public HiveValueWriter() {
         this.writeUnknownTypes = false;
         this.writableWriter = new HiveWritableValueWriter(false);
@@ -52,84 +68,206 @@ public class HiveValueWriter implements SettingsAware, ValueWriter<HiveType> {
 
     @Override
     public boolean write(HiveType type, Generator generator) {
-        boolean result = write(type.getObject(), type.getObjectInspector(), generator);
-        return result;
+        ObjectInspector oi = type.getObjectInspector();
+        if (oi != compiledInspector) {
+            compiledWriter = compile(oi);
+            compiledInspector = oi;
+        }
+        return compiledWriter.write(type.getObject(), generator);
     }
 
-    private boolean write(Object data, ObjectInspector oi, Generator generator) {
-        if (data == null) {
-            generator.writeNull();
-            return true;
+    private abstract static class OIWriter {
+        boolean write(Object data, Generator generator) {
+            if (data == null) {
+                generator.writeNull();
+                return true;
+            }
+            return writeValue(data, generator);
         }
 
+        abstract boolean writeValue(Object data, Generator generator);
+    }
+
+    private OIWriter compile(final ObjectInspector oi) {
         switch (oi.getCategory()) {
         case PRIMITIVE:
-            Writable writable = (Writable) ((PrimitiveObjectInspector) oi).getPrimitiveWritableObject(data);
+            return primitive((PrimitiveObjectInspector) oi);
 
-            if (!writableWriter.write(writable, generator)) {
-                return false;
-            }
-            break;
-
-        case LIST: // or ARRAY
-            ListObjectInspector loi = (ListObjectInspector) oi;
-            generator.writeBeginArray();
+        case LIST: { // or ARRAY
+            final ListObjectInspector loi = (ListObjectInspector) oi;
+            final OIWriter element = compile(loi.getListElementObjectInspector());
 
-            for (int i = 0; i < loi.getListLength(data); i++) {
-                if (!write(loi.getListElement(data, i), loi.getListElementObjectInspector(), generator)) {
-                    return false;
+            return new OIWriter() {
+                @Override
+                boolean writeValue(Object data, Generator generator) {
+                    generator.writeBeginArray();
+                    int length = loi.getListLength(data);
+                    for (int i = 0; i < length; i++) {
+                        if (!element.write(loi.getListElement(data, i), generator)) {
+                            return false;
+                        }
+                    }
+                    generator.writeEndArray();
+                    return true;
                 }
-            }
-            generator.writeEndArray();
-
-            break;
+            };
+        }
 
-        case MAP:
-            MapObjectInspector moi = (MapObjectInspector) oi;
+        case MAP: {
+            final MapObjectInspector moi = (MapObjectInspector) oi;
+            final OIWriter value = compile(moi.getMapValueObjectInspector());
 
-            generator.writeBeginObject();
-            for (Map.Entry<?, ?> entry : moi.getMap(data).entrySet()) {
-                //write(entry.getKey(), mapType.getMapKeyTypeInfo(), generator);
-                // TODO: handle non-strings
-                generator.writeFieldName(alias.toES(entry.getKey().toString()));
-                if (!write(entry.getValue(), moi.getMapValueObjectInspector(), generator)) {
-                    return false;
+            return new OIWriter() {
+                @Override
+                boolean writeValue(Object data, Generator generator) {
+                    generator.writeBeginObject();
+                    for (Map.Entry<?, ?> entry : moi.getMap(data).entrySet()) {
+                        // TODO: handle non-strings
+                        generator.writeFieldName(alias.toES(entry.getKey().toString()));
+                        if (!value.write(entry.getValue(), generator)) {
+                            return false;
+                        }
+                    }
+                    generator.writeEndObject();
+                    return true;
                 }
-            }
-            generator.writeEndObject();
+            };
+        }
 
-            break;
+        case STRUCT: {
+            final StructObjectInspector soi = (StructObjectInspector) oi;
+            List<? extends StructField> refs = soi.getAllStructFieldRefs();
 
-        case STRUCT:
-            StructObjectInspector soi = (StructObjectInspector) oi;
+            final int size = refs.size();
+            final StructField[] fields = refs.toArray(new StructField[size]);
+            final FieldName[] names = new FieldName[size];
+            final OIWriter[] values = new OIWriter[size];
 
-            List<? extends StructField> refs = soi.getAllStructFieldRefs();
+            for (int i = 0; i < size; i++) {
+                names[i] = new FieldName(alias.toES(fields[i].getFieldName()));
+                values[i] = compile(fields[i].getFieldObjectInspector());
+            }
 
-            generator.writeBeginObject();
-            for (StructField structField : refs) {
-                generator.writeFieldName(alias.toES(structField.getFieldName()));
-                if (!write(soi.getStructFieldData(data, structField), structField.getFieldObjectInspector(), generator)) {
-                    return false;
+            return new OIWriter() {
+                @Override
+                boolean writeValue(Object data, Generator generator) {
+                    generator.writeBeginObject();
+                    for (int i = 0; i < size; i++) {
+                        generator.writeFieldName(names[i]);
+                        if (!values[i].write(soi.getStructFieldData(data, fields[i]), generator)) {
+                            return false;
+                        }
+                    }
+                    generator.writeEndObject();
+                    return true;
                 }
-            }
-            generator.writeEndObject();
-            break;
+            };
+        }
 
         case UNION:
-            //UnionObjectInspector uoi = (UnionObjectInspector) oi;
-            throw new UnsupportedOperationException("union not yet supported");//break;
-
+            return new OIWriter() {
+                @Override
+                boolean writeValue(Object data, Generator generator) {
+                    //UnionObjectInspector uoi = (UnionObjectInspector) oi;
+                    throw new UnsupportedOperationException("union not yet supported");
+                }
+            };
 
         default:
-            if (writeUnknownTypes) {
-                return handleUnknown(data, oi, generator);
-            }
-            return false;
+            return new OIWriter() {
+                @Override
+                boolean writeValue(Object data, Generator generator) {
+                    if (writeUnknownTypes) {
+                        return handleUnknown(data, oi, generator);
+                    }
+                    return false;
+                }
+            };
         }
-
-        return true;
     }
 
+    // common types are read straight from their inspector; the rest go through their Writable representation
+    private OIWriter primitive(final PrimitiveObjectInspector oi) {
+        switch (oi.getPrimitiveCategory()) {
+        case BOOLEAN:
+            return new OIWriter() {
+                @Override
+                boolean writeValue(Object data, Generator generator) {
+                    generator.writeBoolean(((BooleanObjectInspector) oi).get(data));
+                    return true;
+                }
+            };
+        case BYTE:
+            return new OIWriter() {
+                @Override
+                boolean writeValue(Object data, Generator generator) {
+                    generator.writeNumber(((ByteObjectInspector) oi).get(data));
+                    return true;
+                }
+            };
+        case SHORT:
+            return new OIWriter() {
+                @Override
+                boolean writeValue(Object data, Generator generator) {
+                    generator.writeNumber(((ShortObjectInspector) oi).get(data));
+                    return true;
+                }
+            };
+        case INT:
+            return new OIWriter() {
+                @Override
+                boolean writeValue(Object data, Generator generator) {
+                    generator.writeNumber(((IntObjectInspector) oi).get(data));
+                    return true;
+                }
+            };
+        case LONG:
+            return new OIWriter() {
+                @Override
+                boolean writeValue(Object data, Generator generator) {
+                    generator.writeNumber(((LongObjectInspector) oi).get(data));
+                    return true;
+                }
+            };
+        case FLOAT:
+            return new OIWriter() {
+                @Override
+                boolean writeValue(Object data, Generator generator) {
+                    generator.writeNumber(((FloatObjectInspector) oi).get(data));
+                    return true;
+                }
+            };
+        case DOUBLE:
+            return new OIWriter() {
+                @Override
+                boolean writeValue(Object data, Generator generator) {
+                    generator.writeNumber(((DoubleObjectInspector) oi).get(data));
+                    return true;
+                }
+            };
+        case STRING:
+            return new OIWriter() {
+                @Override
+                boolean writeValue(Object data, Generator generator) {
+                    // write the UTF-8 bytes directly
+                    Object writable = oi.getPrimitiveWritableObject(data);
+                    if (writable instanceof Text) {
+                        Text text = (Text) writable;
+                        generator.writeUTF8String(text.getBytes(), 0, text.getLength());
+                        return true;
+                    }
+                    return writableWriter.write((Writable) writable, generator);
+                }
+            };
+        default:
+            return new OIWriter() {
+                @Override
+                boolean writeValue(Object data, Generator generator) {
+                    return writableWriter.write((Writable) oi.getPrimitiveWritableObject(data), generator);
+                }
+            };
+        }
+    }
 
     protected boolean handleUnknown(Object value, ObjectInspector oi, Generator generator) {
         return false;
@@ -138,5 +276,8 @@ public class HiveValueWriter implements SettingsAware, ValueWriter<HiveType> {
     @Override
     public void setSettings(Settings settings) {
         alias = HiveUtils.alias(settings);
+        // the field names depend on the aliases
+        compiledInspector = null;
+        compiledWriter = null;
     }
-}
\ No newline at end of file
+}
@@ -21,11 +21,19 @@ package org.elasticsearch.hadoop.mr;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -46,12 +54,15 @@ import org.elasticsearch.hadoop.rest.InitializationUtils;
 import org.elasticsearch.hadoop.rest.QueryBuilder;
 import org.elasticsearch.hadoop.rest.RestRepository;
 import org.elasticsearch.hadoop.rest.ScrollQuery;
+import org.elasticsearch.hadoop.rest.ShardPartitioner;
 import org.elasticsearch.hadoop.rest.dto.Node;
 import org.elasticsearch.hadoop.rest.dto.Shard;
+import org.elasticsearch.hadoop.rest.dto.ShardStats;
 import org.elasticsearch.hadoop.rest.dto.mapping.Field;
+import org.elasticsearch.hadoop.rest.dto.mapping.FieldCodec;
 import org.elasticsearch.hadoop.serialization.ScrollReader;
 import org.elasticsearch.hadoop.serialization.builder.ValueReader;
-import org.elasticsearch.hadoop.util.IOUtils;
+import org.elasticsearch.hadoop.util.BytesArray;
 import org.elasticsearch.hadoop.util.ObjectUtils;
 import org.elasticsearch.hadoop.util.StringUtils;
 
@@ -65,30 +76,98 @@ public class EsInputFormat<K, V> extends InputFormat<K, V> implements org.apache
 
     private static Log log = LogFactory.getLog(EsInputFormat.class);
 
+    private static final Comparator<ShardInputSplit> LARGEST_FIRST = new Comparator<ShardInputSplit>() {
+        @Override
+        public int compare(ShardInputSplit o1, ShardInputSplit o2) {
+            long l1 = o1.getLength(), l2 = o2.getLength();
+            return (l1 > l2 ? -1 : (l1 == l2 ? 0 : 1));
+        }
+    };
+
+    private static final Comparator<Map<Shard, Node>> FEWEST_COPIES_FIRST = new Comparator<Map<Shard, Node>>() {
+        @Override
+        public int compare(Map<Shard, Node> o1, Map<Shard, Node> o2) {
+            return o1.size() - o2.size();
+        }
+    };
+
     protected static class ShardInputSplit extends InputSplit implements org.apache.hadoop.mapred.InputSplit {
 
         private String nodeIp;
         private int httpPort;
         private String nodeId;
         private String nodeName;
-        private String shardId;
-        private String mapping;
+        // mapping encoding (shared by all splits) and its hash (used for caching the decoded mapping)
+        private String mappingHash;
+        private byte[] mapping;
+        // shards (or shard partitions) read, one after the other, by this split
+        private List<ShardPart> parts = new ArrayList<ShardPart>(1);
+        // (estimated) number of docs and bytes read by this split - 0 if unknown
+        private long docs;
+        private long size;
+        // nodes holding copies of all the shards of this split (used for fail-over)
+        private List<ReplicaNode> replicas = new ArrayList<ReplicaNode>(0);
 
         public ShardInputSplit() {}
 
-        public ShardInputSplit(String nodeIp, int httpPort, String nodeId, String nodeName, Integer shard, String mapping) {
+        public ShardInputSplit(String nodeIp, int httpPort, String nodeId, String nodeName, String mappingHash, byte[] mapping) {
             this.nodeIp = nodeIp;
             this.httpPort = httpPort;
             this.nodeId = nodeId;
             this.nodeName = nodeName;
-            this.shardId = shard.toString();
-            this.mapping = mapping;
+            this.mappingHash = (mappingHash != null ? mappingHash : "");
+            this.mapping = (mapping != null ? mapping : BytesArray.EMPTY);
+        }
+
+        public ShardInputSplit(String nodeIp, int httpPort, String nodeId, String nodeName, Integer shard, String mappingHash, byte[] mapping) {
+            this(nodeIp, httpPort, nodeId, nodeName, mappingHash, mapping);
+            addShard(null, shard, null, 0, 0);
+        }
+
+        /**
+         * Adds a shard (hosted on the split node) to this split.
+         *
+         * @param index index of the shard (null if unknown)
+         * @param shard shard id
+         * @param filter partition filter (null if the whole shard is read)
+         * @param docs (estimated) number of docs read from the shard
+         * @param size (estimated) number of bytes read from the shard
+         */
+        void addShard(String index, Integer shard, String filter, long docs, long size) {
+            addShard(index, shard, filter, docs, size, Collections.<Node> emptyList());
+        }
+
+        /**
+         * Adds a shard (hosted on the split node) to this split along with the nodes holding its other copies.
+         * Only the nodes holding copies of all the shards are kept as replicas.
+         */
+        void addShard(String index, Integer shard, String filter, long docs, long size, Collection<Node> replicaNodes) {
+            if (parts.isEmpty()) {
+                for (Node node : replicaNodes) {
+                    replicas.add(new ReplicaNode(node.getId(), node.getIpAddress(), node.getHttpPort()));
+                }
+            }
+            else {
+                Set<String> ids = new HashSet<String>();
+                for (Node node : replicaNodes) {
+                    ids.add(node.getId());
+                }
+                for (Iterator<ReplicaNode> it = replicas.iterator(); it.hasNext();) {
+                    if (!ids.contains(it.next().id)) {
+                        it.remove();
+                    }
+                }
+            }
+
+            parts.add(new ShardPart(index, shard.toString(), filter));
+            this.docs += docs;
+            this.size += size;
         }
 
         @Override
         public long getLength() {
-            // TODO: can this be computed easily?
-            return 1l;
+            // store size of the shard(s) - fall back to the number of docs if the former is not available
+            return Math.max(1l, (size > 0 ? size : docs));
         }
 
         @Override
@@ -103,8 +182,19 @@ public class EsInputFormat<K, V> extends InputFormat<K, V> implements org.apache
             out.writeInt(httpPort);
             out.writeUTF(nodeId);
             out.writeUTF(nodeName);
-            out.writeUTF(shardId);
-            out.writeUTF(mapping);
+            out.writeUTF(mappingHash);
+            out.writeInt(mapping.length);
+            out.write(mapping);
+            out.writeLong(docs);
+            out.writeLong(size);
+            out.writeInt(parts.size());
+            for (ShardPart part : parts) {
+                part.write(out);
+            }
+            out.writeInt(replicas.size());
+            for (ReplicaNode replica : replicas) {
+                replica.write(out);
+            }
         }
 
         @Override
@@ -113,8 +203,25 @@ public class EsInputFormat<K, V> extends InputFormat<K, V> implements org.apache
             httpPort = in.readInt();
             nodeId = in.readUTF();
             nodeName = in.readUTF();
-            shardId = in.readUTF();
-            mapping = in.readUTF();
+            mappingHash = in.readUTF();
+            mapping = new byte[in.readInt()];
+            in.readFully(mapping);
+            docs = in.readLong();
+            size = in.readLong();
+            int count = in.readInt();
+            parts = new ArrayList<ShardPart>(count);
+            for (int i = 0; i < count; i++) {
+                ShardPart part = new ShardPart();
+                part.readFields(in);
+                parts.add(part);
+            }
+            count = in.readInt();
+            replicas = new ArrayList<ReplicaNode>(count);
+            for (int i = 0; i < count; i++) {
+                ReplicaNode replica = new ReplicaNode();
+                replica.readFields(in);
+                replicas.add(replica);
+            }
         }
 
         @Override
@@ -122,10 +229,92 @@ public class EsInputFormat<K, V> extends InputFormat<K, V> implements org.apache
             StringBuilder builder = new StringBuilder();
             builder.append("ShardInputSplit [node=[").append(nodeId).append("/").append(nodeName)
                         .append("|").append(nodeIp).append(":").append(httpPort)
-                        .append("],shard=").append(shardId).append("]");
+                        .append("],shard=");
+            if (parts.size() == 1) {
+                builder.append(parts.get(0));
+            }
+            else {
+                builder.append(parts);
+            }
+            if (size > 0 || docs > 0) {
+                builder.append(",docs=").append(docs).append(",size=").append(size);
+            }
+            if (!replicas.isEmpty()) {
+                builder.append(",replicas=").append(replicas);
+            }
+            builder.append("]");
             return builder.toString();
         }
+    }
+
+    static class ReplicaNode {
+        private String id;
+        private String ip;
+        private int port;
+
+        ReplicaNode() {}
+
+        ReplicaNode(String id, String ip, int port) {
+            this.id = id;
+            this.ip = ip;
+            this.port = port;
+        }
+
+        void write(DataOutput out) throws IOException {
+            out.writeUTF(id);
+            out.writeUTF(ip);
+            out.writeInt(port);
+        }
 
+        void readFields(DataInput in) throws IOException {
+            id = in.readUTF();
+            ip = in.readUTF();
+            port = in.readInt();
+        }
+
+        @Override
+        public String toString() {
+            return id + "|" + ip + ":" + port;
+        }
+    }
+
+    static class ShardPart {
+        private String index;
+        private String shardId;
+        private String filter;
+
+        ShardPart() {}
+
+        ShardPart(String index, String shardId, String filter) {
+            this.index = (index != null ? index : "");
+            this.shardId = shardId;
+            this.filter = (filter != null ? filter : "");
+        }
+
+        void write(DataOutput out) throws IOException {
+            out.writeUTF(index);
+            out.writeUTF(shardId);
+            out.writeUTF(filter);
+        }
+
+        void readFields(DataInput in) throws IOException {
+            index = in.readUTF();
+            shardId = in.readUTF();
+            filter = in.readUTF();
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder();
+            if (StringUtils.hasText(index)) {
+                builder.append(index).append("/");
+            }
+            builder.append(shardId);
+            if (StringUtils.hasText(filter)) {
+                builder.append(",filter=").append(filter);
+            }
+            return builder.toString();
+        }
     }
 
 
@@ -135,16 +324,27 @@ public class EsInputFormat<K, V> extends InputFormat<K, V> implements org.apache
         private int read = 0;
         private ShardInputSplit esSplit;
         private ScrollReader scrollReader;
+        private ValueReader valueReader;
+        private Settings settings;
 
-        private RestRepository client;
+        // the shards of the split are read one after the other
+        private int currentPart = -1;
+        // copy of the current part being read (0 - the split node, 1+ - the replicas)
+        private int copy = 0;
         private QueryBuilder queryBuilder;
         private ScrollQuery result;
+        // next hit of the current part (already retrieved from the scroll)
+        private Object[] hit;
 
         // reuse objects
         private K currentKey;
         private V currentValue;
 
+        // size and read entries of the current part
         private long size = 0;
+        private long partRead = 0;
+        // whether only the number of documents is needed (in which case empty entries are returned)
+        private boolean countOnly = false;
 
         // default constructor used by the NEW api
         public ShardRecordReader() {
@@ -170,32 +370,24 @@ public class EsInputFormat<K, V> extends InputFormat<K, V> implements org.apache
             settings.cleanHosts().setHosts(esSplit.nodeIp).setPort(esSplit.httpPort);
 
             this.esSplit = esSplit;
+            this.settings = settings;
 
             // initialize mapping/ scroll reader
             InitializationUtils.setValueReaderIfNotSet(settings, WritableValueReader.class, log);
             ValueReader reader = ObjectUtils.instantiate(settings.getSerializerValueReaderClassName(), settings);
 
-            String mappingData = esSplit.mapping;
-
             Field mapping = null;
 
-            if (StringUtils.hasText(mappingData)) {
-                mapping = IOUtils.deserializeFromBase64(mappingData);
+            if (esSplit.mapping.length > 0) {
+                mapping = FieldCodec.decode(esSplit.mappingHash, esSplit.mapping);
             }
             else {
                 log.warn(String.format("No mapping found for [%s] - either no index exists or the split configuration has been corrupted", esSplit));
             }
 
+            valueReader = reader;
             scrollReader = new ScrollReader(reader, mapping);
-
-            // initialize REST client
-            client = new RestRepository(settings);
-
-            queryBuilder = QueryBuilder.query(settings)
-                    .shard(esSplit.shardId)
-                    .onlyNode(esSplit.nodeId);
-
-            queryBuilder.fields(settings.getScrollFields());
+            countOnly = settings.getQueryCount();
 
             if (log.isDebugEnabled()) {
                 log.debug(String.format("Initializing RecordReader for [%s]", esSplit));
@@ -228,7 +420,12 @@ public class EsInputFormat<K, V> extends InputFormat<K, V> implements org.apache
 
         @Override
         public float getProgress() {
-            return size == 0 ? 0 : ((float) getPos()) / size;
+            int parts = esSplit.parts.size();
+            if (currentPart < 0 || parts == 0) {
+                return 0;
+            }
+            float partProgress = (size == 0 ? 0 : ((float) partRead) / size);
+            return Math.min(1, (currentPart + partProgress) / parts);
         }
 
         @Override
@@ -241,35 +438,150 @@ public class EsInputFormat<K, V> extends InputFormat<K, V> implements org.apache
                 result.close();
                 result = null;
             }
-            client.close();
         }
 
         @Override
         public boolean next(K key, V value) throws IOException {
-            if (result == null) {
-                result = queryBuilder.build(client, scrollReader);
-                size = result.getSize();
+            recycle(valueReader, value);
 
-                if (log.isTraceEnabled()) {
-                    log.trace(String.format("Received scroll [%s],  size [%d] for query [%s]", result, size, queryBuilder));
-                }
-            }
+            while (!hasNextInPart()) {
+                closeScroll();
 
-            boolean hasNext = result.hasNext();
+                if (currentPart + 1 >= esSplit.parts.size()) {
+                    return false;
+                }
 
-            if (!hasNext) {
-                return false;
+                currentPart++;
+                copy = 0;
+                openPart();
             }
 
-            Object[] next = result.next();
-            currentKey = setCurrentKey(currentKey, key, next[0]);
-            currentValue = setCurrentValue(currentValue, value, next[1]);
+            if (countOnly) {
+                currentKey = setCurrentKey(currentKey, key, "");
+                currentValue = setCurrentValue(currentValue, value, valueReader.createMap());
+            }
+            else {
+                Object[] next = hit;
+                hit = null;
+                currentKey = setCurrentKey(currentKey, key, next[0]);
+                currentValue = setCurrentValue(currentValue, value, next[1]);
+            }
 
             // keep on counting
             read++;
+            partRead++;
             return true;
         }
 
+        private boolean hasNextInPart() {
+            if (countOnly) {
+                return partRead < size;
+            }
+            while (result != null) {
+                try {
+                    // fetch the hit right away since (prefetched) pages report their failures only when consumed
+                    if (hit == null && result.hasNext()) {
+                        hit = result.next();
+                    }
+                    return hit != null;
+                } catch (RuntimeException ex) {
+                    // fail-over only if nothing was read from the current part (otherwise the entries would be duplicated)
+                    if (partRead > 0 || !nextCopy(ex)) {
+                        throw ex;
+                    }
+                    closeScroll();
+                    openPart();
+                }
+            }
+            return false;
+        }
+
+        private void openPart() {
+            while (true) {
+                try {
+                    openScroll(esSplit.parts.get(currentPart));
+                    return;
+                } catch (RuntimeException ex) {
+                    if (!nextCopy(ex)) {
+                        throw ex;
+                    }
+                }
+            }
+        }
+
+        // moves to the next copy of the current part; returns false if there are none left
+        private boolean nextCopy(Exception ex) {
+            if (copy >= esSplit.replicas.size()) {
+                return false;
+            }
+            ReplicaNode replica = esSplit.replicas.get(copy++);
+            log.warn(String.format("Cannot read [%s] from node [%s]; failing over to replica on [%s]",
+                    esSplit.parts.get(currentPart), (copy > 1 ? esSplit.replicas.get(copy - 2).id : esSplit.nodeId), replica), ex);
+            return true;
+        }
+
+        private void openScroll(ShardPart part) {
+            String node = esSplit.nodeId;
+            if (copy == 0) {
+                settings.cleanHosts().setHosts(esSplit.nodeIp).setPort(esSplit.httpPort);
+            }
+            else {
+                ReplicaNode replica = esSplit.replicas.get(copy - 1);
+                node = replica.id;
+                settings.cleanHosts().setHosts(replica.ip).setPort(replica.port);
+            }
+
+            queryBuilder = QueryBuilder.query(settings)
+                    .shard(part.shardId)
+                    .onlyNode(node);
+
+            if (StringUtils.hasText(part.index)) {
+                queryBuilder.index(part.index);
+            }
+
+            queryBuilder.fields(settings.getScrollFields());
+
+            if (StringUtils.hasText(part.filter)) {
+                queryBuilder.filter(part.filter);
+            }
+
+            if (countOnly) {
+                RestRepository repository = new RestRepository(settings);
+                try {
+                    size = queryBuilder.count(repository);
+                } finally {
+                    repository.close();
+                }
+                partRead = 0;
+
+                if (log.isTraceEnabled()) {
+                    log.trace(String.format("Counted [%d] docs for query [%s]", size, queryBuilder));
+                }
+                return;
+            }
+
+            // each scroll uses its own repository which is closed along with it (the underlying connections are pooled)
+            result = queryBuilder.build(new RestRepository(settings), scrollReader);
+            size = result.getSize();
+            partRead = 0;
+
+            if (log.isTraceEnabled()) {
+                log.trace(String.format("Received scroll [%s],  size [%d] for query [%s]", result, size, queryBuilder));
+            }
+        }
+
+        private void closeScroll() {
+            hit = null;
+            if (result != null) {
+                try {
+                    result.close();
+                } catch (IOException ex) {
+                    log.warn("Cannot close scroll", ex);
+                }
+                result = null;
+            }
+        }
+
         @Override
         public abstract K createKey();
 
@@ -280,6 +592,12 @@ public class EsInputFormat<K, V> extends InputFormat<K, V> implements org.apache
 
         protected abstract V setCurrentValue(V oldApiValue, V newApiKey, Object object);
 
+        /**
+         * Invoked before reading the next entry into the given value. Does nothing by default.
+         */
+        protected void recycle(ValueReader reader, V value) {
+        }
+
         @Override
         public long getPos() {
             return read;
@@ -324,12 +642,21 @@ public class EsInputFormat<K, V> extends InputFormat<K, V> implements org.apache
         @Override
         protected Map<Writable, Writable> setCurrentValue(Map<Writable, Writable> oldApiValue, Map<Writable, Writable> newApiKey, Object object) {
             Map<Writable, Writable> val = (Map<Writable, Writable>) object;
-            if (newApiKey != null) {
+            // no need to copy if the entry was decoded straight into the given value
+            if (newApiKey != null && newApiKey != val) {
                 newApiKey.clear();
                 newApiKey.putAll(val);
             }
             return val;
         }
+
+        @Override
+        protected void recycle(ValueReader reader, Map<Writable, Writable> value) {
+            if (reader instanceof WritableValueReader) {
+                // decode the next hit into the current value (if object reuse is enabled)
+                ((WritableValueReader) reader).recycle(value);
+            }
+        }
     }
 
     //
@@ -365,12 +692,12 @@ public class EsInputFormat<K, V> extends InputFormat<K, V> implements org.apache
 
         boolean indexExists = client.indexExists();
 
-        Map<Shard, Node> targetShards = null;
+        List<Map<Shard, Node>> targetShards = null;
 
         if (!indexExists) {
             if (settings.getIndexReadMissingAsEmpty()) {
                 log.info(String.format("Index [%s] missing - treating it as empty", settings.getTargetResource()));
-                targetShards = Collections.emptyMap();
+                targetShards = Collections.emptyList();
             }
             else {
                 client.close();
@@ -379,34 +706,150 @@ public class EsInputFormat<K, V> extends InputFormat<K, V> implements org.apache
             }
         }
         else {
-            targetShards = client.getTargetShards();
+            targetShards = client.getTargetShardCopies();
             if (log.isTraceEnabled()) {
                 log.trace("Creating splits for shards " + targetShards);
             }
         }
 
-        String savedMapping = null;
+        byte[] savedMapping = null;
+        String mappingHash = null;
         if (!targetShards.isEmpty()) {
             Field mapping = client.getMapping();
-            //TODO: implement this more efficiently
-            savedMapping = IOUtils.serializeToBase64(mapping);
+            savedMapping = FieldCodec.encode(mapping);
+            mappingHash = FieldCodec.hash(savedMapping);
             log.info(String.format("Discovered mapping {%s} for [%s]", mapping, settings.getTargetResource()));
         }
 
-        client.close();
+        Map<Shard, ShardStats> stats = Collections.emptyMap();
+        if (!targetShards.isEmpty()) {
+            List<Shard> copies = new ArrayList<Shard>();
+            for (Map<Shard, Node> group : targetShards) {
+                copies.addAll(group.keySet());
+            }
+            try {
+                stats = client.getShardStats(copies);
+            } catch (IOException ex) {
+                log.warn(String.format("Cannot retrieve shard statistics for [%s]; split lengths are unknown", settings.getTargetResource()), ex);
+            }
+        }
+
+        long docsPerSplit = settings.getInputSplitDocs();
+        boolean combine = (docsPerSplit > 0 && settings.getInputSplitCombine());
+        // the shard statistics hold all the docs - count only when a query or a (pushed down) filter narrows them down
+        boolean countDocs = (StringUtils.hasText(settings.getQuery()) || StringUtils.hasText(settings.getQueryFilter()));
+
+        List<ShardInputSplit> splits = new ArrayList<ShardInputSplit>(targetShards.size());
+        // the split (per node) small shards are currently combined into, along with its doc count
+        Map<String, ShardInputSplit> combined = new LinkedHashMap<String, ShardInputSplit>();
+        Map<String, Long> combinedDocs = new LinkedHashMap<String, Long>();
+        // number of splits (that is concurrent scrolls) assigned to each node
+        Map<String, Integer> load = new HashMap<String, Integer>();
+
+        // assign the shards with the fewest copies first since they are the least flexible
+        List<Map<Shard, Node>> groups = new ArrayList<Map<Shard, Node>>(targetShards);
+        Collections.sort(groups, FEWEST_COPIES_FIRST);
+
+        try {
+            for (Map<Shard, Node> group : groups) {
+                // all copies hold the same docs
+                Shard any = group.keySet().iterator().next();
+
+                long docs = -1;
+                if (docsPerSplit > 0) {
+                    ShardStats anyStats = (countDocs ? null : stats.get(any));
+                    docs = (anyStats != null ? anyStats.getDocs() : ShardPartitioner.count(settings, client, any));
+                }
+                List<String> filters = ShardPartitioner.partition(settings, client, any, docs);
+
+                // large shard - one split per partition
+                if (!filters.isEmpty()) {
+                    int partitions = filters.size();
+                    for (String filter : filters) {
+                        Shard shard = leastLoaded(group, load);
+                        Node node = group.get(shard);
+                        ShardStats shardStats = stats.get(shard);
+
+                        ShardInputSplit split = new ShardInputSplit(node.getIpAddress(), node.getHttpPort(), node.getId(), node.getName(), mappingHash, savedMapping);
+                        split.addShard(shard.getIndex(), shard.getName(), filter,
+                                (shardStats != null ? shardStats.getDocs() / partitions : 0),
+                                (shardStats != null ? shardStats.getSizeInBytes() / partitions : 0), replicaNodes(group, shard));
+                        splits.add(split);
+                        addLoad(load, node);
+                    }
+                }
+                else {
+                    Shard shard = leastLoaded(group, load);
+                    Node node = group.get(shard);
+                    ShardStats shardStats = stats.get(shard);
+                    long shardDocs = (shardStats != null ? shardStats.getDocs() : 0);
+                    long shardSize = (shardStats != null ? shardStats.getSizeInBytes() : 0);
+
+                    // small shard - pack it with the other ones on the same node
+                    if (combine && docs < docsPerSplit) {
+                        ShardInputSplit split = combined.get(node.getId());
+                        Long current = combinedDocs.get(node.getId());
+                        if (split == null || current + docs > docsPerSplit) {
+                            split = new ShardInputSplit(node.getIpAddress(), node.getHttpPort(), node.getId(), node.getName(), mappingHash, savedMapping);
+                            splits.add(split);
+                            addLoad(load, node);
+                            combined.put(node.getId(), split);
+                            current = Long.valueOf(0);
+                        }
+                        split.addShard(shard.getIndex(), shard.getName(), null, shardDocs, shardSize, replicaNodes(group, shard));
+                        combinedDocs.put(node.getId(), current + docs);
+                    }
+                    else {
+                        ShardInputSplit split = new ShardInputSplit(node.getIpAddress(), node.getHttpPort(), node.getId(), node.getName(), mappingHash, savedMapping);
+                        split.addShard(shard.getIndex(), shard.getName(), null, shardDocs, shardSize, replicaNodes(group, shard));
+                        splits.add(split);
+                        addLoad(load, node);
+                    }
+                }
+            }
+        } finally {
+            client.close();
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug(String.format("Splits assigned per node %s", load));
+        }
+
+        // schedule the largest splits first
+        Collections.sort(splits, LARGEST_FIRST);
 
-        ShardInputSplit[] splits = new ShardInputSplit[targetShards.size()];
+        log.info(String.format("Created [%d] shard-splits for [%d] shards", splits.size(), targetShards.size()));
+        return splits.toArray(new ShardInputSplit[splits.size()]);
+    }
 
-        int index = 0;
-        for (Entry<Shard, Node> entry : targetShards.entrySet()) {
-            Shard shard = entry.getKey();
-            Node node = entry.getValue();
-            splits[index++] =
-                        new ShardInputSplit(node.getIpAddress(), node.getHttpPort(), node.getId(), node.getName(), shard.getName(), savedMapping);
+    // picks the copy on the node with the fewest splits assigned
+    static Shard leastLoaded(Map<Shard, Node> copies, Map<String, Integer> load) {
+        Shard match = null;
+        int min = Integer.MAX_VALUE;
+        for (Entry<Shard, Node> entry : copies.entrySet()) {
+            Integer current = load.get(entry.getValue().getId());
+            int value = (current != null ? current.intValue() : 0);
+            if (value < min) {
+                min = value;
+                match = entry.getKey();
+            }
         }
+        return match;
+    }
 
-        log.info(String.format("Created [%d] shard-splits", splits.length));
-        return splits;
+    static void addLoad(Map<String, Integer> load, Node node) {
+        Integer current = load.get(node.getId());
+        load.put(node.getId(), (current != null ? current.intValue() + 1 : 1));
+    }
+
+    static List<Node> replicaNodes(Map<Shard, Node> copies, Shard selected) {
+        List<Node> nodes = new ArrayList<Node>(copies.size());
+        for (Entry<Shard, Node> entry : copies.entrySet()) {
+            if (!entry.getKey().equals(selected)) {
+                nodes.add(entry.getValue());
+            }
+        }
+        return nodes;
     }
 
     @SuppressWarnings("unchecked")
@@ -18,6 +18,10 @@
  */
 package org.elasticsearch.hadoop.mr;
 
+import java.io.DataInput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -31,15 +35,221 @@ import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.io.Writable;
+import org.elasticsearch.hadoop.cfg.Settings;
 import org.elasticsearch.hadoop.serialization.FieldType;
 import org.elasticsearch.hadoop.serialization.builder.JdkValueReader;
 
 public class WritableValueReader extends JdkValueReader {
 
+    // upper bound for the number of cached field names (protects against documents with arbitrary keys)
+    private static final int FIELD_NAME_CACHE_SIZE = 1024;
+
+    /**
+     * Read-only {@link Text} used for the (shared) field name keys.
+     */
+    public static class CanonicalText extends Text {
+        private boolean frozen = false;
+
+        // used by Writable deserialization
+        public CanonicalText() {
+            super();
+        }
+
+        CanonicalText(String value) {
+            super(value);
+            frozen = true;
+        }
+
+        private void checkWrite() {
+            if (frozen) {
+                throw new UnsupportedOperationException("Field name keys are read-only");
+            }
+        }
+
+        @Override
+        public void set(String string) {
+            checkWrite();
+            super.set(string);
+        }
+
+        @Override
+        public void set(byte[] utf8) {
+            checkWrite();
+            super.set(utf8);
+        }
+
+        @Override
+        public void set(Text other) {
+            checkWrite();
+            super.set(other);
+        }
+
+        @Override
+        public void set(byte[] utf8, int start, int len) {
+            checkWrite();
+            super.set(utf8, start, len);
+        }
+
+        @Override
+        public void append(byte[] utf8, int start, int len) {
+            checkWrite();
+            super.append(utf8, start, len);
+        }
+
+        @Override
+        public void clear() {
+            checkWrite();
+            super.clear();
+        }
+
+        @Override
+        public void readFields(DataInput in) throws IOException {
+            checkWrite();
+            super.readFields(in);
+        }
+    }
+
+    private final Map<String, Text> fieldNames = new HashMap<String, Text>();
+
+    /**
+     * Objects handed out for the current document; recycled (and refilled) once the next document is read.
+     */
+    private static abstract class Pool<T> {
+        private final List<T> items = new ArrayList<T>();
+        private int used = 0;
+
+        T next() {
+            if (used == items.size()) {
+                items.add(create());
+            }
+            return items.get(used++);
+        }
+
+        void reset() {
+            used = 0;
+        }
+
+        abstract T create();
+    }
+
+    private static class ArrayPool extends Pool<ArrayWritable> {
+        private final Class<? extends Writable> type;
+
+        ArrayPool(Class<? extends Writable> type) {
+            this.type = type;
+        }
+
+        @Override
+        ArrayWritable create() {
+            return new ArrayWritable(type);
+        }
+    }
+
+    // object reuse - enabled through the settings, active once the first document is recycled
+    private boolean reuse = false;
+    private boolean recycling = false;
+    private Map<Writable, Writable> target;
+
+    private final Pool<Text> texts = new Pool<Text>() {
+        @Override
+        Text create() {
+            return new Text();
+        }
+    };
+    private final Pool<IntWritable> ints = new Pool<IntWritable>() {
+        @Override
+        IntWritable create() {
+            return new IntWritable();
+        }
+    };
+    private final Pool<LongWritable> longs = new Pool<LongWritable>() {
+        @Override
+        LongWritable create() {
+            return new LongWritable();
+        }
+    };
+    private final Pool<FloatWritable> floats = new Pool<FloatWritable>() {
+        @Override
+        FloatWritable create() {
+            return new FloatWritable();
+        }
+    };
+    private final Pool<DoubleWritable> doubles = new Pool<DoubleWritable>() {
+        @Override
+        DoubleWritable create() {
+            return new DoubleWritable();
+        }
+    };
+    private final Pool<BooleanWritable> booleans = new Pool<BooleanWritable>() {
+        @Override
+        BooleanWritable create() {
+            return new BooleanWritable();
+        }
+    };
+    private final Pool<LinkedMapWritable> maps = new Pool<LinkedMapWritable>() {
+        @Override
+        LinkedMapWritable create() {
+            return new LinkedMapWritable();
+        }
+    };
+    private final Map<Class<? extends Writable>, ArrayPool> arrays = new HashMap<Class<? extends Writable>, ArrayPool>();
+
+    @Override
+    public void setSettings(Settings settings) {
+        super.setSettings(settings);
+        reuse = settings.getScrollReuse();
+    }
+
+    /**
+     * Marks the start of a new document. If object reuse is enabled, the objects handed out for the previous document are
+     * recycled (that is refilled with the new values) and the document itself is decoded into the given map (if not null).
+     *
+     * @param target map to decode the next document into
+     */
+    public void recycle(Map<Writable, Writable> target) {
+        if (!reuse) {
+            return;
+        }
+
+        recycling = true;
+        this.target = target;
+
+        texts.reset();
+        ints.reset();
+        longs.reset();
+        floats.reset();
+        doubles.reset();
+        booleans.reset();
+        maps.reset();
+        for (ArrayPool pool : arrays.values()) {
+            pool.reset();
+        }
+    }
+
+    @Override
+    public Object readFieldName(String name) {
+        Text key = fieldNames.get(name);
+        if (key == null) {
+            key = new CanonicalText(name);
+            if (fieldNames.size() < FIELD_NAME_CACHE_SIZE) {
+                fieldNames.put(name, key);
+            }
+        }
+        return key;
+    }
+
     @SuppressWarnings("rawtypes")
     @Override
     public Map createMap() {
-        return new LinkedMapWritable();
+        if (!recycling) {
+            return new LinkedMapWritable();
+        }
+
+        // the first map of a document is the document itself
+        Map<Writable, Writable> map = (target != null ? target : maps.next());
+        target = null;
+        map.clear();
+        return map;
     }
 
     @Override
@@ -82,7 +292,16 @@ public class WritableValueReader extends JdkValueReader {
             throw new UnsupportedOperationException();
         }
 
-        return new ArrayWritable(arrayType);
+        if (!recycling) {
+            return new ArrayWritable(arrayType);
+        }
+
+        ArrayPool pool = arrays.get(arrayType);
+        if (pool == null) {
+            pool = new ArrayPool(arrayType);
+            arrays.put(arrayType, pool);
+        }
+        return pool.next();
     }
 
     @Override
@@ -106,33 +325,63 @@ public class WritableValueReader extends JdkValueReader {
     }
 
     @Override
-    protected Object parseBoolean(String value) {
-        return new BooleanWritable(Boolean.parseBoolean(value));
+    public Object readBoolean(boolean value) {
+        if (!recycling) {
+            return new BooleanWritable(value);
+        }
+        BooleanWritable writable = booleans.next();
+        writable.set(value);
+        return writable;
     }
 
     @Override
-    protected Object parseDouble(String value) {
-        return new DoubleWritable(Double.parseDouble(value));
+    public Object readDouble(double value) {
+        if (!recycling) {
+            return new DoubleWritable(value);
+        }
+        DoubleWritable writable = doubles.next();
+        writable.set(value);
+        return writable;
     }
 
     @Override
-    protected Object parseFloat(String value) {
-        return new FloatWritable(Float.parseFloat(value));
+    public Object readFloat(float value) {
+        if (!recycling) {
+            return new FloatWritable(value);
+        }
+        FloatWritable writable = floats.next();
+        writable.set(value);
+        return writable;
     }
 
     @Override
-    protected Object parseLong(String value) {
-        return new LongWritable(Long.parseLong(value));
+    public Object readLong(long value) {
+        if (!recycling) {
+            return new LongWritable(value);
+        }
+        LongWritable writable = longs.next();
+        writable.set(value);
+        return writable;
     }
 
     @Override
-    protected Object parseInteger(String value) {
-        return new IntWritable(Integer.parseInt(value));
+    public Object readInteger(int value) {
+        if (!recycling) {
+            return new IntWritable(value);
+        }
+        IntWritable writable = ints.next();
+        writable.set(value);
+        return writable;
     }
 
     @Override
     protected Object parseString(String value) {
-        return new Text(value);
+        if (!recycling) {
+            return new Text(value);
+        }
+        Text writable = texts.next();
+        writable.set(value);
+        return writable;
     }
 
     @Override
@@ -142,6 +391,6 @@ public class WritableValueReader extends JdkValueReader {
 
     @Override
     protected Object date(String value) {
-        return new Text(value);
+        return parseString(value);
     }
 }
\ No newline at end of file
@@ -20,8 +20,11 @@ package org.elasticsearch.hadoop.pig;
 
 import java.io.IOException;
 import java.io.StringReader;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -55,12 +58,17 @@ import org.apache.pig.impl.logicalLayer.FrontendException;
 import org.apache.pig.impl.util.ObjectSerializer;
 import org.apache.pig.impl.util.UDFContext;
 import org.elasticsearch.hadoop.cfg.InternalConfigurationOptions;
+import org.elasticsearch.hadoop.cfg.PropertiesSettings;
 import org.elasticsearch.hadoop.cfg.Settings;
 import org.elasticsearch.hadoop.cfg.SettingsManager;
 import org.elasticsearch.hadoop.mr.EsOutputFormat;
 import org.elasticsearch.hadoop.rest.InitializationUtils;
+import org.elasticsearch.hadoop.rest.RestRepository;
+import org.elasticsearch.hadoop.rest.dto.ShardStats;
+import org.elasticsearch.hadoop.rest.dto.mapping.Field;
 import org.elasticsearch.hadoop.util.IOUtils;
 import org.elasticsearch.hadoop.util.ObjectUtils;
+import org.elasticsearch.hadoop.util.SettingsUtils;
 import org.elasticsearch.hadoop.util.StringUtils;
 
 /**
@@ -82,6 +90,8 @@ import org.elasticsearch.hadoop.util.StringUtils;
 public class EsStorage extends LoadFunc implements LoadMetadata, LoadPushDown, StoreFuncInterface, StoreMetadata {
 
     private static final Log log = LogFactory.getLog(EsStorage.class);
+    // filter pushed down by Pig (as a filter tree)
+    private static final String PIG_FILTER = "es.internal.pig.filter";
     private final boolean trace = log.isTraceEnabled();
 
     private Properties properties;
@@ -94,6 +104,7 @@ public class EsStorage extends LoadFunc implements LoadMetadata, LoadPushDown, S
     private PigTuple pigTuple;
 
     private List<String> aliasesTupleNames;
+    private List<Object> filter;
 
     public EsStorage() {
         this(new String[0]);
@@ -224,6 +235,11 @@ public class EsStorage extends LoadFunc implements LoadMetadata, LoadPushDown, S
 
         Settings settings = SettingsManager.loadFrom(cfg);
 
+        String esFilter = getUDFProperties().getProperty(InternalConfigurationOptions.INTERNAL_ES_QUERY_FILTER);
+        if (esFilter != null) {
+            cfg.set(InternalConfigurationOptions.INTERNAL_ES_QUERY_FILTER, esFilter);
+        }
+
         if (settings.getScrollFields() != null) {
             return;
         }
@@ -234,7 +250,7 @@ public class EsStorage extends LoadFunc implements LoadMetadata, LoadPushDown, S
                 log.debug(String.format("Found field project [%s] in UDF properties", fields));
             }
 
-            cfg.set(InternalConfigurationOptions.INTERNAL_ES_TARGET_FIELDS, fields);
+            cfg.set(InternalConfigurationOptions.INTERNAL_ES_TARGET_FIELDS, withFilterFields(fields));
             return;
         }
 
@@ -275,11 +291,22 @@ public class EsStorage extends LoadFunc implements LoadMetadata, LoadPushDown, S
             if (log.isDebugEnabled()) {
                 log.debug(String.format("Found field projection [%s] in store %s", fields, store));
             }
-            cfg.set(InternalConfigurationOptions.INTERNAL_ES_TARGET_FIELDS, fields);
+            cfg.set(InternalConfigurationOptions.INTERNAL_ES_TARGET_FIELDS, withFilterFields(fields));
             getUDFProperties().setProperty(InternalConfigurationOptions.INTERNAL_ES_TARGET_FIELDS, fields);
         }
     }
 
+    // the fields used by the pushed down filter need to be read (for evaluating it) even if they are not projected
+    private String withFilterFields(String fields) {
+        String tree = getUDFProperties().getProperty(PIG_FILTER);
+        if (tree == null) {
+            return fields;
+        }
+        Set<String> all = new LinkedHashSet<String>(StringUtils.tokenize(fields));
+        all.addAll(PigFilters.fields(PigFilters.deserialize(tree)));
+        return StringUtils.concatenate(all.toArray(new String[all.size()]), ",");
+    }
+
 
     @Override
     public String relativeToAbsolutePath(String location, Path curDir) throws IOException {
@@ -300,17 +327,23 @@ public class EsStorage extends LoadFunc implements LoadMetadata, LoadPushDown, S
         this.reader = reader;
         aliasesTupleNames = StringUtils.tokenize(getUDFProperties().getProperty(
                 InternalConfigurationOptions.INTERNAL_ES_TARGET_FIELDS));
+        String tree = getUDFProperties().getProperty(PIG_FILTER);
+        filter = (tree != null ? PigFilters.deserialize(tree) : null);
     }
 
     @SuppressWarnings({ "unchecked", "rawtypes" })
     @Override
     public Tuple getNext() throws IOException {
         try {
-            if (!reader.nextKeyValue()) {
-                return null;
-            }
+            Map dataMap;
+            // Pig relies on the loader for evaluating the pushed down filter
+            do {
+                if (!reader.nextKeyValue()) {
+                    return null;
+                }
+                dataMap = reader.getCurrentValue();
+            } while (filter != null && !PigFilters.matches(filter, dataMap));
 
-            Map dataMap = reader.getCurrentValue();
             Tuple tuple = TupleFactory.getInstance().newTuple(dataMap.size());
 
             if (!aliasesTupleNames.isEmpty()) {
@@ -361,17 +394,78 @@ public class EsStorage extends LoadFunc implements LoadMetadata, LoadPushDown, S
 
     @Override
     public ResourceStatistics getStatistics(String location, Job job) throws IOException {
-        return null;
+        init(location, job);
+        ShardStats stats = InitializationUtils.resourceStats(SettingsManager.loadFrom(job.getConfiguration()), log);
+        if (stats == null) {
+            return null;
+        }
+
+        ResourceStatistics statistics = new ResourceStatistics();
+        statistics.setNumRecords(stats.getDocs());
+        statistics.setSizeInBytes(stats.getSizeInBytes());
+        return statistics;
     }
 
+    //
+    // Filter push down - Pig only pushes filters on partition keys so the mapped fields are reported as such
+    //
     @Override
     public String[] getPartitionKeys(String location, Job job) throws IOException {
-        return null;
+        init(location, job);
+        Settings settings = SettingsManager.loadFrom(job.getConfiguration());
+        if (!settings.getInputPushdown()) {
+            return null;
+        }
+
+        Field mapping = null;
+        RestRepository repository = new RestRepository(settings);
+        try {
+            if (repository.indexExists()) {
+                mapping = repository.getMapping();
+            }
+        } finally {
+            repository.close();
+        }
+
+        if (mapping == null || mapping.properties() == null) {
+            return null;
+        }
+
+        // Pig refers to the fields through their aliases (if any)
+        Map<String, String> aliases = SettingsUtils.aliases(settings.getProperty("es.mapping.names"));
+        Map<String, String> esToPig = new LinkedHashMap<String, String>();
+        for (Entry<String, String> entry : aliases.entrySet()) {
+            // aliases are registered under their lower case version as well; keep the original
+            if (!esToPig.containsKey(entry.getValue())) {
+                esToPig.put(entry.getValue(), entry.getKey());
+            }
+        }
+
+        List<String> keys = new ArrayList<String>();
+        for (Field field : mapping.properties()) {
+            String key = esToPig.get(field.name());
+            keys.add(key != null ? key : field.name());
+        }
+
+        if (log.isTraceEnabled()) {
+            log.trace(String.format("Reporting mapped fields %s as partition keys (for filter push down)", keys));
+        }
+        return keys.toArray(new String[keys.size()]);
     }
 
     @Override
     public void setPartitionFilter(Expression partitionFilter) throws IOException {
-        //
+        List<Object> tree = PigFilters.toTree(partitionFilter, PigUtils.alias(new PropertiesSettings(properties != null ? properties : new Properties())));
+        Properties props = getUDFProperties();
+        props.setProperty(PIG_FILTER, PigFilters.serialize(tree));
+
+        String esFilter = PigFilters.toFilter(tree);
+        if (esFilter != null) {
+            props.setProperty(InternalConfigurationOptions.INTERNAL_ES_QUERY_FILTER, esFilter);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug(String.format("Given filter [%s]; pushing down Elasticsearch filter [%s]", partitionFilter, esFilter));
+        }
     }
 
     @Override
@@ -0,0 +1,498 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.hadoop.pig;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.codec.binary.Base64;
+import org.apache.pig.Expression;
+import org.apache.pig.Expression.BinaryExpression;
+import org.apache.pig.Expression.Column;
+import org.apache.pig.Expression.Const;
+import org.apache.pig.Expression.OpType;
+import org.apache.pig.data.DataByteArray;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.elasticsearch.hadoop.serialization.SerializationException;
+import org.elasticsearch.hadoop.util.FieldAlias;
+import org.elasticsearch.hadoop.util.StringUtils;
+
+/**
+ * Handles the Pig filters pushed down to the loader (through {@link org.apache.pig.LoadMetadata#setPartitionFilter(Expression)}).
+ * Since Pig removes such filters from its plan, the loader is responsible for their exact semantics: the filter is translated
+ * into an Elasticsearch filter that returns a superset of the matching documents (string equality is approximated through
+ * a match query, unsupported expressions and big number/byte array constants are dropped), with each document being checked
+ * against the full filter afterwards.
+ * <p/>
+ * Filters are kept as simple (JSON-friendly) trees, namely nested lists in the form [op, arguments...], with columns already
+ * translated to Elasticsearch field names.
+ */
+abstract class PigFilters {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String COLUMN = "col";
+    private static final String CONSTANT = "const";
+
+    /**
+     * Converts the given Pig expression into a filter tree.
+     *
+     * @param expression Pig expression
+     * @param alias column to field name mapping
+     * @return the filter tree
+     */
+    static List<Object> toTree(Expression expression, FieldAlias alias) {
+        if (expression instanceof Column) {
+            return Arrays.<Object> asList(COLUMN, alias.toES(((Column) expression).getName()));
+        }
+        if (expression instanceof Const) {
+            Object value = ((Const) expression).getValue();
+            if (value == null || value instanceof String || value instanceof Boolean) {
+                return Arrays.<Object> asList(CONSTANT, value);
+            }
+            // keep the type around since JSON does not
+            // big numbers are kept as strings to preserve their precision
+            if (value instanceof BigInteger || value instanceof BigDecimal) {
+                return Arrays.<Object> asList(CONSTANT, value.toString(), value.getClass().getSimpleName());
+            }
+            if (value instanceof DataByteArray) {
+                return Arrays.<Object> asList(CONSTANT, StringUtils.asUTFString(Base64.encodeBase64(((DataByteArray) value).get())), "DataByteArray");
+            }
+            if (value instanceof Number) {
+                return Arrays.<Object> asList(CONSTANT, value, value.getClass().getSimpleName());
+            }
+            if (value.getClass().getName().equals("org.joda.time.DateTime")) {
+                return Arrays.<Object> asList(CONSTANT, PigUtils.convertDateToES(value), "DateTime");
+            }
+            throw new IllegalArgumentException(String.format("Unsupported constant [%s] in filter", value));
+        }
+        if (expression instanceof BinaryExpression) {
+            BinaryExpression binary = (BinaryExpression) expression;
+            return Arrays.<Object> asList(operator(binary.getOpType()), toTree(binary.getLhs(), alias), toTree(binary.getRhs(), alias));
+        }
+        throw new IllegalArgumentException(String.format("Unsupported filter expression [%s]", expression));
+    }
+
+    // OP_AND -> and
+    private static String operator(OpType type) {
+        String name = type.name().toLowerCase(Locale.ENGLISH);
+        return (name.startsWith("op_") ? name.substring(3) : name);
+    }
+
+    static String serialize(List<Object> tree) {
+        try {
+            return MAPPER.writeValueAsString(tree);
+        } catch (IOException ex) {
+            throw new SerializationException(String.format("Cannot serialize filter [%s]", tree), ex);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static List<Object> deserialize(String tree) {
+        try {
+            return restoreConstants(MAPPER.readValue(tree, List.class));
+        } catch (IOException ex) {
+            throw new SerializationException(String.format("Cannot deserialize filter [%s]", tree), ex);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Object> restoreConstants(List<Object> node) {
+        if (CONSTANT.equals(node.get(0))) {
+            if (node.size() > 2) {
+                Object value = node.get(1);
+                String type = (String) node.get(2);
+                if ("Integer".equals(type)) {
+                    value = Integer.valueOf(((Number) value).intValue());
+                }
+                else if ("Long".equals(type)) {
+                    value = Long.valueOf(((Number) value).longValue());
+                }
+                else if ("Float".equals(type)) {
+                    value = Float.valueOf(((Number) value).floatValue());
+                }
+                else if ("Double".equals(type)) {
+                    value = Double.valueOf(((Number) value).doubleValue());
+                }
+                else if ("BigInteger".equals(type)) {
+                    value = new BigInteger((String) value);
+                }
+                else if ("BigDecimal".equals(type)) {
+                    value = new BigDecimal((String) value);
+                }
+                else if ("DataByteArray".equals(type)) {
+                    value = new DataByteArray(Base64.decodeBase64(((String) value).getBytes(StringUtils.UTF_8)));
+                }
+                else if ("DateTime".equals(type)) {
+                    value = PigUtils.convertDateFromES((String) value);
+                }
+                node.set(1, value);
+            }
+        }
+        else if (!COLUMN.equals(node.get(0))) {
+            for (int i = 1; i < node.size(); i++) {
+                restoreConstants((List<Object>) node.get(i));
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Returns the fields used by the given filter tree.
+     */
+    static Set<String> fields(List<Object> tree) {
+        Set<String> fields = new LinkedHashSet<String>();
+        addFields(tree, fields);
+        return fields;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void addFields(List<Object> node, Set<String> fields) {
+        if (COLUMN.equals(node.get(0))) {
+            fields.add((String) node.get(1));
+        }
+        else if (!CONSTANT.equals(node.get(0))) {
+            for (int i = 1; i < node.size(); i++) {
+                addFields((List<Object>) node.get(i), fields);
+            }
+        }
+    }
+
+    /**
+     * Translates the given filter tree into an Elasticsearch filter matching (at least) the documents accepted by the tree.
+     *
+     * @param tree filter tree
+     * @return the filter in JSON format or null if nothing can be pushed down
+     */
+    static String toFilter(List<Object> tree) {
+        Object filter = translate(tree);
+        if (filter == null) {
+            return null;
+        }
+        try {
+            return MAPPER.writeValueAsString(filter);
+        } catch (IOException ex) {
+            throw new SerializationException(String.format("Cannot serialize filter for [%s]", tree), ex);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object translate(List<Object> node) {
+        String op = (String) node.get(0);
+
+        if ("and".equals(op) || "or".equals(op)) {
+            Object left = translate((List<Object>) node.get(1));
+            Object right = translate((List<Object>) node.get(2));
+            if (left == null || right == null) {
+                // a conjunction is still narrowed down by its translatable side, a disjunction is not
+                return ("and".equals(op) ? (left != null ? left : right) : null);
+            }
+            return Collections.singletonMap(op, Arrays.asList(left, right));
+        }
+
+        List<Object> column = (List<Object>) node.get(1);
+        List<Object> constant = (List<Object>) node.get(2);
+        // normalize (constant op column) to (column op constant)
+        if (!COLUMN.equals(column.get(0))) {
+            column = (List<Object>) node.get(2);
+            constant = (List<Object>) node.get(1);
+            op = flip(op);
+        }
+        if (!COLUMN.equals(column.get(0)) || !CONSTANT.equals(constant.get(0))) {
+            return null;
+        }
+
+        String field = (String) column.get(1);
+        Object value = constant.get(1);
+        // big numbers are evaluated only by the loader since ES would convert them to the field type
+        if (!(value instanceof Number || value instanceof Boolean || value instanceof String) || isBig(value)) {
+            return null;
+        }
+
+        if (value instanceof String) {
+            // range on analyzed terms do not match the Pig semantics
+            return ("eq".equals(op) ? match(field, value) : null);
+        }
+        if ("eq".equals(op)) {
+            return term(field, value);
+        }
+        if ("ne".equals(op)) {
+            return Collections.singletonMap("not", term(field, value));
+        }
+        String range = range(op);
+        if (range == null || value instanceof Boolean) {
+            return null;
+        }
+        return Collections.singletonMap("range", Collections.singletonMap(field, Collections.singletonMap(range, value)));
+    }
+
+    private static Object term(String field, Object value) {
+        return Collections.singletonMap("term", Collections.singletonMap(field, value));
+    }
+
+    // approximates string equality through a match query (all terms need to be present) - a superset of the Pig results
+    private static Object match(String field, Object value) {
+        Map<String, Object> match = new LinkedHashMap<String, Object>();
+        match.put("query", value);
+        match.put("operator", "and");
+        // values analyzed to no terms (such as empty strings or stop words) would otherwise match nothing
+        match.put("zero_terms_query", "all");
+        return Collections.singletonMap("query", Collections.singletonMap("match", Collections.singletonMap(field, match)));
+    }
+
+    private static String range(String op) {
+        if ("lt".equals(op)) {
+            return "lt";
+        }
+        if ("le".equals(op)) {
+            return "lte";
+        }
+        if ("gt".equals(op)) {
+            return "gt";
+        }
+        if ("ge".equals(op)) {
+            return "gte";
+        }
+        return null;
+    }
+
+    private static String flip(String op) {
+        if (op.startsWith("l")) {
+            return "g" + op.substring(1);
+        }
+        if (op.startsWith("g")) {
+            return "l" + op.substring(1);
+        }
+        return op;
+    }
+
+    /**
+     * Evaluates the given filter tree against a document, following the Pig semantics (comparisons against null are neither
+     * true nor false).
+     *
+     * @param tree filter tree
+     * @param document document read from Elasticsearch
+     * @return true if the document matches the filter, false otherwise
+     */
+    @SuppressWarnings("rawtypes")
+    static boolean matches(List<Object> tree, Map document) {
+        return Boolean.TRUE.equals(eval(tree, document));
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static Object eval(List<Object> node, Map document) {
+        String op = (String) node.get(0);
+
+        if (COLUMN.equals(op)) {
+            return PigUtils.valueAt(document, (String) node.get(1));
+        }
+        if (CONSTANT.equals(op)) {
+            return node.get(1);
+        }
+
+        Object left = eval((List<Object>) node.get(1), document);
+
+        if ("and".equals(op)) {
+            if (Boolean.FALSE.equals(left)) {
+                return Boolean.FALSE;
+            }
+            Object right = eval((List<Object>) node.get(2), document);
+            if (Boolean.FALSE.equals(right)) {
+                return Boolean.FALSE;
+            }
+            return (left == null || right == null ? null : Boolean.TRUE);
+        }
+        if ("or".equals(op)) {
+            if (Boolean.TRUE.equals(left)) {
+                return Boolean.TRUE;
+            }
+            Object right = eval((List<Object>) node.get(2), document);
+            if (Boolean.TRUE.equals(right)) {
+                return Boolean.TRUE;
+            }
+            return (left == null || right == null ? null : Boolean.FALSE);
+        }
+
+        Object right = eval((List<Object>) node.get(2), document);
+        if (left == null || right == null) {
+            return null;
+        }
+
+        if ("match".equals(op)) {
+            return Boolean.valueOf(left.toString().matches(right.toString()));
+        }
+
+        if (left instanceof Number && right instanceof Number) {
+            Object result = arithmetic(op, (Number) left, (Number) right);
+            if (result != null) {
+                return result;
+            }
+        }
+
+        Integer cmp = compare(left, right);
+        if (cmp == null) {
+            return null;
+        }
+        int c = cmp.intValue();
+
+        if ("eq".equals(op)) {
+            return Boolean.valueOf(c == 0);
+        }
+        if ("ne".equals(op)) {
+            return Boolean.valueOf(c != 0);
+        }
+        if ("lt".equals(op)) {
+            return Boolean.valueOf(c < 0);
+        }
+        if ("le".equals(op)) {
+            return Boolean.valueOf(c <= 0);
+        }
+        if ("gt".equals(op)) {
+            return Boolean.valueOf(c > 0);
+        }
+        if ("ge".equals(op)) {
+            return Boolean.valueOf(c >= 0);
+        }
+        return null;
+    }
+
+    private static boolean isBig(Object number) {
+        return (number instanceof BigInteger || number instanceof BigDecimal);
+    }
+
+    private static boolean isFinite(Number number) {
+        double d = number.doubleValue();
+        return !(Double.isNaN(d) || Double.isInfinite(d)) || isBig(number);
+    }
+
+    private static BigDecimal asBigDecimal(Number number) {
+        if (number instanceof BigDecimal) {
+            return (BigDecimal) number;
+        }
+        if (number instanceof BigInteger) {
+            return new BigDecimal((BigInteger) number);
+        }
+        return (isIntegral(number) ? BigDecimal.valueOf(number.longValue()) : new BigDecimal(number.doubleValue()));
+    }
+
+    private static boolean isIntegral(Number number) {
+        return (number instanceof Integer || number instanceof Long || number instanceof Short || number instanceof Byte);
+    }
+
+    private static Object arithmetic(String op, Number left, Number right) {
+        if (isBig(left) || isBig(right)) {
+            // big numbers that are not finite (NaN/Infinity) cannot be handled
+            if (!isFinite(left) || !isFinite(right)) {
+                return null;
+            }
+            BigDecimal l = asBigDecimal(left), r = asBigDecimal(right);
+            if ("plus".equals(op)) {
+                return l.add(r);
+            }
+            if ("minus".equals(op)) {
+                return l.subtract(r);
+            }
+            if ("times".equals(op)) {
+                return l.multiply(r);
+            }
+            if ("div".equals(op)) {
+                return (r.signum() == 0 ? null : l.divide(r, MathContext.DECIMAL128));
+            }
+            if ("mod".equals(op)) {
+                return (r.signum() == 0 ? null : l.remainder(r));
+            }
+            return null;
+        }
+
+        if (isIntegral(left) && isIntegral(right)) {
+            long l = left.longValue(), r = right.longValue();
+            if ("plus".equals(op)) {
+                return Long.valueOf(l + r);
+            }
+            if ("minus".equals(op)) {
+                return Long.valueOf(l - r);
+            }
+            if ("times".equals(op)) {
+                return Long.valueOf(l * r);
+            }
+            if ("div".equals(op)) {
+                return (r == 0 ? null : Long.valueOf(l / r));
+            }
+            if ("mod".equals(op)) {
+                return (r == 0 ? null : Long.valueOf(l % r));
+            }
+            return null;
+        }
+
+        double l = left.doubleValue(), r = right.doubleValue();
+        if ("plus".equals(op)) {
+            return Double.valueOf(l + r);
+        }
+        if ("minus".equals(op)) {
+            return Double.valueOf(l - r);
+        }
+        if ("times".equals(op)) {
+            return Double.valueOf(l * r);
+        }
+        if ("div".equals(op)) {
+            return (r == 0 ? null : Double.valueOf(l / r));
+        }
+        if ("mod".equals(op)) {
+            return (r == 0 ? null : Double.valueOf(l % r));
+        }
+        return null;
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static Integer compare(Object left, Object right) {
+        if (left instanceof Number && right instanceof Number) {
+            Number l = (Number) left, r = (Number) right;
+            if ((isBig(l) || isBig(r)) && isFinite(l) && isFinite(r)) {
+                return Integer.valueOf(asBigDecimal(l).compareTo(asBigDecimal(r)));
+            }
+            if (isIntegral(l) && isIntegral(r)) {
+                long a = l.longValue(), b = r.longValue();
+                return Integer.valueOf(a < b ? -1 : (a == b ? 0 : 1));
+            }
+            return Integer.valueOf(Double.compare(l.doubleValue(), r.doubleValue()));
+        }
+        // byte arrays are compared against the (UTF-8) representation of the other side
+        if (left instanceof DataByteArray && !(right instanceof DataByteArray)) {
+            right = new DataByteArray(right.toString().getBytes(StringUtils.UTF_8));
+        }
+        else if (right instanceof DataByteArray && !(left instanceof DataByteArray)) {
+            left = new DataByteArray(left.toString().getBytes(StringUtils.UTF_8));
+        }
+        if (left instanceof Comparable && left.getClass() == right.getClass()) {
+            return Integer.valueOf(((Comparable) left).compareTo(right));
+        }
+        return null;
+    }
+}
@@ -21,6 +21,7 @@ package org.elasticsearch.hadoop.pig;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 import javax.xml.bind.DatatypeConverter;
@@ -92,47 +93,45 @@ class PigUtils {
         return new FieldAlias(SettingsUtils.aliases(settings.getProperty(MAPPING_NAMES)));
     }
 
-    static String asProjection(Schema schema, Properties props) {
-        List<String> fields = new ArrayList<String>();
-        addField(schema, fields, alias(new PropertiesSettings(props)), "");
-
-        return StringUtils.concatenate(fields.toArray(new String[fields.size()]), ",");
-    }
+    /**
+     * Returns the value of the given field, which can be a (dotted) path. Nested fields are returned either under their full
+     * name (through the fields parameter) or as part of their (filtered) parent (through _source filtering).
+     */
+    @SuppressWarnings("rawtypes")
+    static Object valueAt(Map map, String path) {
+        Object value = map.get(path);
+        if (value != null || path.indexOf('.') < 0) {
+            return value;
+        }
 
-    private static void addField(Schema schema, List<String> fields, FieldAlias fa, String currentNode) {
-        for (FieldSchema field : schema.getFields()) {
-            if (field.schema != null) {
-                addField(schema, fields, fa, currentNode + "." + fa.toES(field.alias));
-            }
-            else {
-                fields.add(fa.toES(field.alias));
-                //                if (!StringUtils.hasText(field.alias)) {
-                //                    LogFactory.getLog(PigUtils.class).debug("Cannot detect alias for field in schema" + schema);
-                //                    return null;
-                //                }
+        value = map;
+        for (String node : StringUtils.tokenize(path, ".")) {
+            if (!(value instanceof Map)) {
+                return null;
             }
+            value = ((Map) value).get(node);
         }
+        return value;
     }
 
-    static String asProjection(RequiredFieldList list, Properties props) {
+    // only top-level fields are projected so that each one maps to a tuple slot - nested tuples and bags are read as a whole
+    static String asProjection(Schema schema, Properties props) {
         List<String> fields = new ArrayList<String>();
         FieldAlias alias = alias(new PropertiesSettings(props));
-        for (RequiredField field : list.getFields()) {
-            addField(field, fields, alias, "");
+        for (FieldSchema field : schema.getFields()) {
+            fields.add(alias.toES(field.alias));
         }
 
         return StringUtils.concatenate(fields.toArray(new String[fields.size()]), ",");
     }
 
-    private static void addField(RequiredField field, List<String> fields, FieldAlias fa, String currentNode) {
-        if (field.getSubFields() != null && !field.getSubFields().isEmpty()) {
-            for (RequiredField subField : field.getSubFields()) {
-                addField(subField, fields, fa, currentNode + "." + fa.toES(subField.getAlias()));
-            }
+    static String asProjection(RequiredFieldList list, Properties props) {
+        List<String> fields = new ArrayList<String>();
+        FieldAlias alias = alias(new PropertiesSettings(props));
+        for (RequiredField field : list.getFields()) {
+            fields.add(alias.toES(field.getAlias()));
         }
 
-        else {
-            fields.add(fa.toES(field.getAlias()));
-        }
+        return StringUtils.concatenate(fields.toArray(new String[fields.size()]), ",");
     }
 }
\ No newline at end of file
@@ -0,0 +1,89 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.hadoop.rest;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.elasticsearch.hadoop.cfg.Settings;
+import org.elasticsearch.hadoop.util.unit.ByteSizeValue;
+import org.elasticsearch.hadoop.util.unit.TimeValue;
+
+/**
+ * Adjusts the size (in bytes) of the bulk batches based on the feedback from Elasticsearch (AIMD).
+ * As long as bulk requests are fast and no entries are rejected, the batch size is increased by a fixed step (the minimum size); as soon as
+ * entries are rejected or the requests become slow, it is halved. The size is always kept within the configured bounds.
+ * Thread-safe since the feedback can be provided by the threads sending the requests in the background.
+ */
+class AdaptiveBatchSize {
+
+    private static final Log log = LogFactory.getLog(AdaptiveBatchSize.class);
+
+    private final int min;
+    private final int max;
+    private final long latency;
+    private volatile int size;
+
+    AdaptiveBatchSize(Settings settings) {
+        min = settings.getBatchSizeInBytesMin();
+        max = Math.max(min, settings.getBatchSizeInBytesMax());
+        latency = settings.getBatchSizeAdaptiveLatency();
+        size = Math.min(max, Math.max(min, settings.getBatchSizeInBytes()));
+
+        if (log.isDebugEnabled()) {
+            log.debug(String.format("Adaptive batch size [%s] (min [%s], max [%s], target latency [%s])", new ByteSizeValue(size),
+                    new ByteSizeValue(min), new ByteSizeValue(max), TimeValue.timeValueMillis(latency)));
+        }
+    }
+
+    /**
+     * Returns the current batch size (in bytes).
+     *
+     * @return batch size in bytes
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Updates the batch size based on the outcome of a bulk request.
+     *
+     * @param took time (in millis) for the bulk request to complete (including retries)
+     * @param rejected number of entries rejected by Elasticsearch
+     */
+    synchronized void update(long took, int rejected) {
+        int previous = size;
+
+        if (rejected > 0 || took > latency) {
+            // multiplicative decrease
+            size = Math.max(min, previous / 2);
+            if (size != previous) {
+                log.info(String.format("Decreasing batch size from [%s] to [%s] - bulk request took [%s] and had [%d] entries rejected",
+                        new ByteSizeValue(previous), new ByteSizeValue(size), TimeValue.timeValueMillis(took), rejected));
+            }
+        }
+        else {
+            // additive increase
+            size = (int) Math.min((long) max, (long) previous + min);
+            if (size != previous && log.isDebugEnabled()) {
+                log.debug(String.format("Increasing batch size from [%s] to [%s] - bulk request took [%s]", new ByteSizeValue(previous),
+                        new ByteSizeValue(size), TimeValue.timeValueMillis(took)));
+            }
+        }
+    }
+}
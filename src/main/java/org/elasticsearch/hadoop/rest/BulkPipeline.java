@@ -0,0 +1,174 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.hadoop.rest;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.elasticsearch.hadoop.cfg.Settings;
+import org.elasticsearch.hadoop.util.BytesArray;
+import org.elasticsearch.hadoop.util.TrackingBytesArray;
+
+/**
+ * Pipelines bulk requests by sending batches in the background while the caller fills in the next one.
+ * Uses a bounded number of buffers (one more than the number of requests in flight), each with its own connection.
+ * Batches are completed (and their failures reported) in the order in which they were sent.
+ */
+class BulkPipeline {
+
+    private static final Log log = LogFactory.getLog(BulkPipeline.class);
+
+    private static class Batch {
+        final TrackingBytesArray data;
+        final RestClient client;
+
+        Batch(Settings settings) {
+            this.data = new TrackingBytesArray(new BytesArray(settings.getBatchSizeInBytes()));
+            this.client = new RestClient(settings);
+        }
+    }
+
+    private final Resource resource;
+    private final AdaptiveBatchSize batchSize;
+    private final ExecutorService executor;
+    private final List<Batch> batches;
+    private final Deque<Batch> available;
+    private final Deque<Future<Batch>> inFlight;
+    private Batch current;
+
+    BulkPipeline(Settings settings, Resource resource, int concurrency, AdaptiveBatchSize batchSize) {
+        this.resource = resource;
+        this.batchSize = batchSize;
+
+        batches = new ArrayList<Batch>(concurrency + 1);
+        available = new ArrayDeque<Batch>(concurrency + 1);
+        inFlight = new ArrayDeque<Future<Batch>>(concurrency);
+
+        for (int i = 0; i <= concurrency; i++) {
+            Batch batch = new Batch(settings);
+            batches.add(batch);
+            available.add(batch);
+        }
+
+        executor = Executors.newFixedThreadPool(concurrency, new DaemonThreadFactory("bulk"));
+
+        if (log.isDebugEnabled()) {
+            log.debug(String.format("Pipelining bulk writes w/ [%d] requests in flight", concurrency));
+        }
+    }
+
+    /**
+     * Returns the buffer to be filled in next. Blocks while all the other buffers are in flight; if the oldest one failed, its exception is thrown.
+     *
+     * @return empty buffer to be filled in
+     */
+    TrackingBytesArray next() throws IOException {
+        if (current == null) {
+            if (available.isEmpty()) {
+                available.add(complete(inFlight.poll()));
+            }
+            current = available.poll();
+        }
+        return current.data;
+    }
+
+    /**
+     * Sends the current buffer in the background.
+     */
+    void send() {
+        final Batch batch = current;
+        current = null;
+
+        inFlight.add(executor.submit(new Callable<Batch>() {
+            @Override
+            public Batch call() throws Exception {
+                long start = System.currentTimeMillis();
+                int rejected = batch.client.bulk(resource, batch.data);
+                if (batchSize != null) {
+                    batchSize.update(System.currentTimeMillis() - start, rejected);
+                }
+                batch.data.reset();
+                return batch;
+            }
+        }));
+    }
+
+    /**
+     * Waits for all the requests in flight to complete and releases the underlying resources.
+     * Throws the failure of the first (in order) failed request, if any.
+     */
+    void close() throws IOException {
+        Exception failure = null;
+
+        try {
+            while (!inFlight.isEmpty()) {
+                try {
+                    available.add(complete(inFlight.poll()));
+                } catch (IOException ex) {
+                    failure = (failure != null ? failure : ex);
+                } catch (RuntimeException ex) {
+                    failure = (failure != null ? failure : ex);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+            for (Batch batch : batches) {
+                batch.client.close();
+            }
+        }
+
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        }
+        if (failure != null) {
+            throw (RuntimeException) failure;
+        }
+    }
+
+    private Batch complete(Future<Batch> request) throws IOException {
+        try {
+            return request.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for bulk request to complete", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException("Bulk request failed", cause);
+        }
+    }
+}
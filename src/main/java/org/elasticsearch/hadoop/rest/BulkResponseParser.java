@@ -0,0 +1,124 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.hadoop.rest;
+
+import java.io.InputStream;
+import java.util.BitSet;
+
+import org.elasticsearch.hadoop.serialization.Parser;
+import org.elasticsearch.hadoop.serialization.Parser.Token;
+import org.elasticsearch.hadoop.serialization.json.JacksonJsonParser;
+
+/**
+ * Streaming parser of bulk responses. Reads only the status and error of each item, skipping everything else, without building any
+ * intermediate structure.
+ */
+abstract class BulkResponseParser {
+
+    private static final String ITEMS = "items";
+    private static final String ERRORS = "errors";
+    private static final String STATUS = "status";
+    private static final String ERROR = "error";
+
+    /**
+     * Parses the given bulk response and marks the items that have been rejected and can be retried (by their position).
+     * The rest of the items are considered successful; if an item failed and cannot be retried, an exception is thrown.
+     *
+     * @param content bulk response
+     * @param rejected set of rejected items
+     * @return true if the response contains the items outcome, false otherwise
+     */
+    static boolean parse(InputStream content, BitSet rejected) {
+        Parser parser = new JacksonJsonParser(content);
+        try {
+            return parse(parser, rejected);
+        } finally {
+            parser.close();
+        }
+    }
+
+    private static boolean parse(Parser parser, BitSet rejected) {
+        Token token = parser.nextToken();
+        if (token != Token.START_OBJECT) {
+            return false;
+        }
+
+        for (token = parser.nextToken(); token == Token.FIELD_NAME; token = parser.nextToken()) {
+            String name = parser.currentName();
+            token = parser.nextToken();
+
+            if (ERRORS.equals(name) && token == Token.VALUE_BOOLEAN && !parser.booleanValue()) {
+                // no errors, no need to look at the items
+                return true;
+            }
+            if (ITEMS.equals(name) && token == Token.START_ARRAY) {
+                parseItems(parser, rejected);
+                return true;
+            }
+            parser.skipChildren();
+        }
+
+        return false;
+    }
+
+    private static void parseItems(Parser parser, BitSet rejected) {
+        int index = 0;
+
+        // each item is an object with the operation as the only field, e.g. { "index" : { ... } }
+        for (Token token = parser.nextToken(); token == Token.START_OBJECT; token = parser.nextToken()) {
+            // operation name
+            parser.nextToken();
+            // operation object
+            parser.nextToken();
+
+            int status = -1;
+            String error = null;
+
+            for (token = parser.nextToken(); token == Token.FIELD_NAME; token = parser.nextToken()) {
+                String name = parser.currentName();
+                token = parser.nextToken();
+
+                if (STATUS.equals(name) && token == Token.VALUE_NUMBER) {
+                    status = parser.intValue();
+                }
+                else if (ERROR.equals(name) && token != Token.VALUE_NULL) {
+                    error = (token.isValue() ? parser.text() : "unknown error");
+                    parser.skipChildren();
+                }
+                else {
+                    parser.skipChildren();
+                }
+            }
+            // close the item
+            parser.nextToken();
+
+            if (error != null) {
+                // status - introduced in 1.0.RC1
+                if ((status > 0 && HttpStatus.canRetry(status)) || error.contains("EsRejectedExecutionException")) {
+                    rejected.set(index);
+                }
+                else {
+                    String message = (status > 0 ? String.format("%s(%s) - %s", HttpStatus.getText(status), status, error) : error);
+                    throw new IllegalStateException(String.format("Found unrecoverable error [%s]; Bailing out..", message));
+                }
+            }
+            index++;
+        }
+    }
+}
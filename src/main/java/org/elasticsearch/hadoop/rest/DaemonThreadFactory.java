@@ -0,0 +1,44 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.hadoop.rest;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates named, daemon threads (so they never prevent the task JVM from exiting).
+ */
+class DaemonThreadFactory implements ThreadFactory {
+
+    private static final AtomicInteger POOL = new AtomicInteger();
+
+    private final AtomicInteger thread = new AtomicInteger();
+    private final String prefix;
+
+    DaemonThreadFactory(String name) {
+        prefix = String.format("es-hadoop-%s-%d-", name, POOL.incrementAndGet());
+    }
+
+    @Override
+    public Thread newThread(Runnable r) {
+        Thread t = new Thread(r, prefix + thread.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+    }
+}
@@ -29,6 +29,7 @@ import org.elasticsearch.hadoop.cfg.ConfigurationOptions;
 import org.elasticsearch.hadoop.cfg.InternalConfigurationOptions;
 import org.elasticsearch.hadoop.cfg.Settings;
 import org.elasticsearch.hadoop.cfg.SettingsManager;
+import org.elasticsearch.hadoop.rest.dto.ShardStats;
 import org.elasticsearch.hadoop.serialization.BytesConverter;
 import org.elasticsearch.hadoop.serialization.builder.ContentBuilder;
 import org.elasticsearch.hadoop.serialization.builder.NoOpValueWriter;
@@ -102,6 +103,58 @@ public abstract class InitializationUtils {
         }
     }
 
+    /**
+     * Returns the statistics of the target resource, as reported by Elasticsearch. The result is cached inside the settings
+     * (typically the job configuration) since the query planners can ask for them multiple times.
+     *
+     * @param settings settings
+     * @param log logger
+     * @return the resource statistics or null if the target index does not exist
+     */
+    public static ShardStats resourceStats(Settings settings, Log log) throws IOException {
+        String resource = settings.getTargetResource();
+        String cached = settings.getProperty(InternalConfigurationOptions.INTERNAL_ES_RESOURCE_STATS);
+
+        ShardStats stats = fromStatsCache(cached, resource);
+        if (stats != null) {
+            return stats;
+        }
+
+        RestRepository client = new RestRepository(settings);
+        try {
+            if (!client.indexExists()) {
+                return null;
+            }
+            stats = client.getIndexStats();
+        } finally {
+            client.close();
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug(String.format("Retrieved statistics %s for [%s]", stats, resource));
+        }
+        settings.setProperty(InternalConfigurationOptions.INTERNAL_ES_RESOURCE_STATS, toStatsCache(stats, resource));
+        return stats;
+    }
+
+    // the statistics are cached as docs,bytes,resource
+    static String toStatsCache(ShardStats stats, String resource) {
+        return String.format("%d,%d,%s", stats.getDocs(), stats.getSizeInBytes(), resource);
+    }
+
+    // returns the cached statistics or null if there are none for the given resource
+    static ShardStats fromStatsCache(String cached, String resource) {
+        if (!StringUtils.hasText(cached)) {
+            return null;
+        }
+        int docsEnd = cached.indexOf(",");
+        int sizeEnd = (docsEnd < 0 ? -1 : cached.indexOf(",", docsEnd + 1));
+        if (sizeEnd < 0 || !cached.substring(sizeEnd + 1).equals(resource)) {
+            return null;
+        }
+        return new ShardStats(Long.parseLong(cached.substring(0, docsEnd)), Long.parseLong(cached.substring(docsEnd + 1, sizeEnd)));
+    }
+
     public static boolean setFieldExtractorIfNotSet(Settings settings, Class<? extends FieldExtractor> clazz, Log log) {
         if (!StringUtils.hasText(settings.getMappingIdExtractorClassName())) {
             Log logger = (log != null ? log : LogFactory.getLog(clazz));
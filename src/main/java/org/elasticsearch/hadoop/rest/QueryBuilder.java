@@ -20,11 +20,15 @@ package org.elasticsearch.hadoop.rest;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
+import org.codehaus.jackson.map.ObjectMapper;
 import org.elasticsearch.hadoop.cfg.Settings;
 import org.elasticsearch.hadoop.serialization.ScrollReader;
 import org.elasticsearch.hadoop.util.Assert;
@@ -38,6 +42,7 @@ public class QueryBuilder {
     private final Resource resource;
 
     private static String MATCH_ALL = "{\"query\":{\"match_all\":{}}}";
+    private static final ObjectMapper MAPPER = new ObjectMapper();
 
     private Map<String, String> uriQuery = new LinkedHashMap<String, String>();
     private BytesArray bodyQuery;
@@ -48,6 +53,12 @@ public class QueryBuilder {
     private String node;
 
     private String fields;
+    private String excludes;
+    private boolean sourceFilter = false;
+    private String filter;
+    // filter pushed down by the query engine
+    private String queryFilter;
+    private String index;
 
     QueryBuilder(Settings settings) {
         this.resource = new Resource(settings);
@@ -56,12 +67,15 @@ public class QueryBuilder {
             query = MATCH_ALL;
         }
         parseQuery(query.trim(), settings);
+        queryFilter = settings.getQueryFilter();
     }
 
     public static QueryBuilder query(Settings settings) {
         return new QueryBuilder(settings).
                         time(settings.getScrollKeepAlive()).
-                        size(settings.getScrollSize());
+                        size(settings.getScrollSize()).
+                        sourceFilter(settings.getScrollSourceFilter()).
+                        excludes(settings.getScrollSourceExclude());
     }
 
 
@@ -136,21 +150,89 @@ public class QueryBuilder {
         return this;
     }
 
+    /**
+     * Excludes the given fields (or paths, wildcards allowed) from the returned documents. Applies only to _source filtering.
+     *
+     * @param fieldsCSV fields to exclude (comma separated)
+     * @return this builder
+     */
+    public QueryBuilder excludes(String fieldsCSV) {
+        this.excludes = fieldsCSV;
+        return this;
+    }
+
+    /**
+     * Indicates whether the fields are retrieved through _source filtering or through the <code>fields</code> parameter
+     * (the default). The former returns only the needed parts of the (nested) documents, without wrapping each value into an array.
+     *
+     * @param sourceFilter whether to use _source filtering
+     * @return this builder
+     */
+    public QueryBuilder sourceFilter(boolean sourceFilter) {
+        this.sourceFilter = sourceFilter;
+        return this;
+    }
+
+    /**
+     * Restricts the query to the given (concrete) index, out of the ones matched by the resource.
+     * Used when targeting an individual shard since shard ids are not unique across indices.
+     *
+     * @param index index name
+     * @return this builder
+     */
+    public QueryBuilder index(String index) {
+        Assert.hasText(index, "Invalid index");
+        this.index = index;
+        return this;
+    }
+
+    /**
+     * Restricts the results to the documents matching the given (JSON) filter, on top of the query.
+     * Typically used for partitioning a shard.
+     *
+     * @param filter filter in JSON format
+     * @return this builder
+     */
+    public QueryBuilder filter(String filter) {
+        this.filter = filter;
+        return this;
+    }
+
     private String assemble() {
-        StringBuilder sb = new StringBuilder(resource.indexAndType());
+        return assemble(true);
+    }
+
+    private String assemble(boolean scan) {
+        StringBuilder sb = new StringBuilder(index != null ? index + "/" + resource.type() : resource.indexAndType());
         sb.append("/_search?");
 
         // override infrastructure params
-        uriQuery.put("search_type", "scan");
-        uriQuery.put("scroll", String.valueOf(time.minutes()));
-        uriQuery.put("size", String.valueOf(size));
+        if (scan) {
+            uriQuery.put("search_type", "scan");
+            uriQuery.put("scroll", String.valueOf(time.minutes()));
+            uriQuery.put("size", String.valueOf(size));
+        }
+        else {
+            uriQuery.put("search_type", "count");
+            uriQuery.remove("scroll");
+            uriQuery.remove("size");
+        }
 
         // override fields
-        if (StringUtils.hasText(fields)) {
-            uriQuery.put("fields", fields);
+        uriQuery.remove("fields");
+        uriQuery.remove("_source_include");
+        uriQuery.remove("_source_exclude");
+
+        if (sourceFilter) {
+            if (StringUtils.hasText(fields)) {
+                uriQuery.put("_source_include", fields);
+            }
+            if (StringUtils.hasText(excludes)) {
+                uriQuery.put("_source_exclude", excludes);
+            }
         }
-        else {
-            uriQuery.remove("fields");
+        else if (StringUtils.hasText(fields)) {
+            uriQuery.put("fields", fields);
         }
 
         StringBuilder pref = new StringBuilder();
@@ -184,15 +266,79 @@ public class QueryBuilder {
         return sb.toString();
     }
 
+    @SuppressWarnings("unchecked")
+    private BytesArray assembleBody(String statsField) throws IOException {
+        if (!StringUtils.hasText(filter) && !StringUtils.hasText(queryFilter) && !StringUtils.hasText(statsField)) {
+            return bodyQuery;
+        }
+
+        Map<String, Object> source = (bodyQuery != null ?
+                MAPPER.readValue(bodyQuery.bytes(), 0, bodyQuery.length(), Map.class) : new LinkedHashMap<String, Object>());
+
+        List<Object> filters = new ArrayList<Object>(3);
+        if (StringUtils.hasText(queryFilter)) {
+            filters.add(MAPPER.readValue(queryFilter, Map.class));
+        }
+        if (StringUtils.hasText(filter)) {
+            filters.add(MAPPER.readValue(filter, Map.class));
+        }
+
+        if (!filters.isEmpty()) {
+            // use a top-level filter (recognized by all versions) so that uri queries are supported as well
+            String key = (source.containsKey("post_filter") ? "post_filter" : "filter");
+            Object existing = source.get(key);
+            if (existing != null) {
+                filters.add(0, existing);
+            }
+            source.put(key, (filters.size() == 1 ? filters.get(0) : Collections.singletonMap("and", filters)));
+        }
+
+        if (StringUtils.hasText(statsField)) {
+            source.put("facets", Collections.singletonMap("stats",
+                    Collections.singletonMap("statistical", Collections.singletonMap("field", statsField))));
+        }
+
+        return new BytesArray(MAPPER.writeValueAsBytes(source));
+    }
+
     public ScrollQuery build(RestRepository client, ScrollReader reader) {
         String scrollUri = assemble();
         try {
-            return client.scan(scrollUri, bodyQuery, reader);
+            return client.scan(scrollUri, assembleBody(null), reader);
         } catch (IOException ex) {
             throw new IllegalStateException("Cannot build scroll [" + scrollUri + "]", ex);
         }
     }
 
+    /**
+     * Counts the documents matching the query.
+     *
+     * @param client repository
+     * @return the number of matching documents
+     */
+    @SuppressWarnings("unchecked")
+    public long count(RestRepository client) {
+        Map<String, Object> hits = (Map<String, Object>) count(client, null).get("hits");
+        return ((Number) hits.get("total")).longValue();
+    }
+
+    /**
+     * Counts the documents matching the query. If a field is specified, its statistics (min/max) are returned as well
+     * (under facets/stats).
+     *
+     * @param client repository
+     * @param statsField field for which statistics are computed (can be null)
+     * @return the search response
+     */
+    Map<String, Object> count(RestRepository client, String statsField) {
+        String countUri = assemble(false);
+        try {
+            return client.search(countUri, assembleBody(statsField));
+        } catch (IOException ex) {
+            throw new IllegalStateException("Cannot count [" + countUri + "]", ex);
+        }
+    }
+
     @Override
     public String toString() {
         return "QueryBuilder [" + assemble() + "]";
@@ -99,6 +99,11 @@ public class Resource {
         return indexAndType + "/_search_shards";
     }
 
+    // level=shards is supported by all versions; the metric flags are used by 0.90 (newer versions return all metrics)
+    String shardStats() {
+        return index + "/_stats?clear=true&docs=true&store=true&level=shards";
+    }
+
     String mapping() {
         return indexAndType + "/_mapping";
     }
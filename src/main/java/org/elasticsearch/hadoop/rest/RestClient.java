@@ -22,8 +22,8 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
-import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
@@ -32,15 +32,13 @@ import java.util.Map.Entry;
 
 import org.codehaus.jackson.JsonParser;
 import org.codehaus.jackson.map.ObjectMapper;
-import org.codehaus.jackson.map.ObjectReader;
 import org.elasticsearch.hadoop.cfg.ConfigurationOptions;
 import org.elasticsearch.hadoop.cfg.Settings;
 import org.elasticsearch.hadoop.rest.Request.Method;
 import org.elasticsearch.hadoop.rest.dto.Node;
-import org.elasticsearch.hadoop.serialization.ParsingUtils;
-import org.elasticsearch.hadoop.serialization.json.JacksonJsonParser;
 import org.elasticsearch.hadoop.util.ByteSequence;
 import org.elasticsearch.hadoop.util.BytesArray;
+import org.elasticsearch.hadoop.util.IOUtils;
 import org.elasticsearch.hadoop.util.ObjectUtils;
 import org.elasticsearch.hadoop.util.SettingsUtils;
 import org.elasticsearch.hadoop.util.StringUtils;
@@ -56,6 +54,7 @@ public class RestClient implements Closeable {
     private TimeValue scrollKeepAlive;
     private boolean indexReadMissingAsEmpty;
     private final HttpRetryPolicy retryPolicy;
+    private final BitSet rejectedEntries = new BitSet();
 
     public enum HEALTH {
         RED, YELLOW, GREEN
@@ -105,60 +104,62 @@ public class RestClient implements Closeable {
 
     @SuppressWarnings("unchecked")
     private <T> T parseContent(InputStream content, String string) throws IOException {
-        // create parser manually to lower Jackson requirements
-        JsonParser jsonParser = mapper.getJsonFactory().createJsonParser(content);
-        Map<String, Object> map = mapper.readValue(jsonParser, Map.class);
+        Map<String, Object> map = null;
+        try {
+            // create parser manually to lower Jackson requirements
+            JsonParser jsonParser = mapper.getJsonFactory().createJsonParser(content);
+            map = mapper.readValue(jsonParser, Map.class);
+        } finally {
+            // release the connection
+            IOUtils.close(content);
+        }
         return (T) (string != null ? map.get(string) : map);
     }
 
-    public void bulk(Resource resource, TrackingBytesArray data) throws IOException {
+    /**
+     * Executes the given bulk request, retrying the rejected entries according to the retry policy.
+     *
+     * @param resource target resource
+     * @param data bulk entries
+     * @return the number of entries rejected (across all attempts)
+     */
+    public int bulk(Resource resource, TrackingBytesArray data) throws IOException {
         Retry retry = retryPolicy.init();
         int httpStatus = 0;
+        int rejected = 0;
 
         do {
             Response response = execute(PUT, resource.bulk(), data);
-            httpStatus = (retryFailedEntries(response.body(), data) ? HttpStatus.SERVICE_UNAVAILABLE : HttpStatus.OK);
+            int retries = 0;
+            try {
+                retries = retryFailedEntries(response.body(), data);
+            } finally {
+                IOUtils.close(response.body());
+            }
+            rejected += retries;
+            httpStatus = (retries > 0 ? HttpStatus.SERVICE_UNAVAILABLE : HttpStatus.OK);
         } while (data.length() > 0 && retry.retry(httpStatus));
-    }
 
-    @SuppressWarnings("rawtypes")
-    private boolean retryFailedEntries(InputStream content, TrackingBytesArray data) throws IOException {
-        ObjectReader r = mapper.reader(Map.class);
-        JsonParser parser = mapper.getJsonFactory().createJsonParser(content);
-        if (ParsingUtils.seek("items", new JacksonJsonParser(parser)) == null) {
-            return false;
-        }
+        return rejected;
+    }
 
-        int entryToDeletePosition = 0; // head of the list
-        for (Iterator<Map> iterator = r.readValues(parser); iterator.hasNext();) {
-            Map map = iterator.next();
-            Map values = (Map) map.values().iterator().next();
-            String error = (String) values.get("error");
-            if (error != null) {
-                // status - introduced in 1.0.RC1
-                Integer status = (Integer) values.get("status");
-                if (status != null && HttpStatus.canRetry(status) || error.contains("EsRejectedExecutionException")) {
-                    entryToDeletePosition++;
-                }
-                else {
-                    String message = (status != null ? String.format("%s(%s) - %s", HttpStatus.getText(status), status, error) : error);
-                    throw new IllegalStateException(String.format("Found unrecoverable error [%s]; Bailing out..", message));
-                }
-            }
-            else {
-                data.remove(entryToDeletePosition);
-            }
+    private int retryFailedEntries(InputStream content, TrackingBytesArray data) throws IOException {
+        rejectedEntries.clear();
+        if (!BulkResponseParser.parse(content, rejectedEntries)) {
+            return 0;
         }
 
-        return entryToDeletePosition > 0;
+        // keep only the rejected entries (for retrying)
+        data.retain(rejectedEntries);
+        return rejectedEntries.cardinality();
     }
 
     public void refresh(Resource resource) throws IOException {
-        execute(POST, resource.refresh());
+        IOUtils.close(execute(POST, resource.refresh()));
     }
 
     public void deleteIndex(String index) throws IOException {
-        execute(DELETE, index);
+        IOUtils.close(execute(DELETE, index));
     }
 
     public List<List<Map<String, Object>>> targetShards(Resource resource) throws IOException {
@@ -167,6 +168,7 @@ public class RestClient implements Closeable {
         if (indexReadMissingAsEmpty) {
             Response res = execute(GET, resource.targetShards(), false);
             if (res.status() == HttpStatus.NOT_FOUND) {
+                IOUtils.close(res.body());
                 shardsJson = Collections.emptyList();
             }
             else {
@@ -235,7 +237,7 @@ public class RestClient implements Closeable {
     }
 
     public String[] scan(String query, BytesArray body) throws IOException {
-        Map<String, Object> scan = parseContent(execute(POST, query, body).body(), null);
+        Map<String, Object> scan = parseContent(execute(new SimpleRequest(POST, null, query, null, body), true).body(), null);
 
         String[] data = new String[2];
         data[0] = scan.get("_scroll_id").toString();
@@ -243,25 +245,39 @@ public class RestClient implements Closeable {
         return data;
     }
 
+    public Map<String, Object> shardStats(Resource resource) throws IOException {
+        return get(resource.shardStats(), "indices");
+    }
+
+    public Map<String, Object> search(String query, BytesArray body) throws IOException {
+        return parseContent(execute(new SimpleRequest(POST, null, query, null, body), true).body(), null);
+    }
+
     public InputStream scroll(String scrollId) throws IOException {
         // use post instead of get to avoid some weird encoding issues (caused by the long URL)
-        return execute(POST, "_search/scroll?scroll=" + scrollKeepAlive.toString(),
-                new BytesArray(scrollId.getBytes(StringUtils.UTF_8))).body();
+        return execute(new SimpleRequest(POST, null, "_search/scroll?scroll=" + scrollKeepAlive.toString(), null,
+                new BytesArray(scrollId.getBytes(StringUtils.UTF_8))), true).body();
     }
 
     public boolean exists(String indexOrType) throws IOException {
-        return (execute(HEAD, indexOrType, false).hasSucceeded());
+        return consume(execute(HEAD, indexOrType, false)).hasSucceeded();
     }
 
     public boolean touch(String indexOrType) throws IOException {
-        return (execute(PUT, indexOrType, false).hasSucceeded());
+        return consume(execute(PUT, indexOrType, false)).hasSucceeded();
+    }
+
+    private static Response consume(Response response) {
+        // discard the body, releasing the connection
+        IOUtils.close(response.body());
+        return response;
     }
 
     public void putMapping(String index, String mapping, byte[] bytes) throws IOException {
         // create index first (if needed) - it might return 403
         touch(index);
 
-        execute(PUT, mapping, new BytesArray(bytes));
+        consume(execute(PUT, mapping, new BytesArray(bytes)));
     }
 
     public String esVersion() throws IOException {
@@ -20,15 +20,20 @@ package org.elasticsearch.hadoop.rest;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.elasticsearch.hadoop.cfg.ConfigurationOptions;
 import org.elasticsearch.hadoop.cfg.Settings;
 import org.elasticsearch.hadoop.rest.dto.Node;
 import org.elasticsearch.hadoop.rest.dto.Shard;
+import org.elasticsearch.hadoop.rest.dto.ShardStats;
 import org.elasticsearch.hadoop.rest.dto.mapping.Field;
 import org.elasticsearch.hadoop.serialization.ScrollReader;
 import org.elasticsearch.hadoop.serialization.command.BulkCommands;
@@ -36,6 +41,8 @@ import org.elasticsearch.hadoop.serialization.command.Command;
 import org.elasticsearch.hadoop.util.Assert;
 import org.elasticsearch.hadoop.util.BytesArray;
 import org.elasticsearch.hadoop.util.BytesRef;
+import org.elasticsearch.hadoop.util.SettingsUtils;
+import org.elasticsearch.hadoop.util.StringUtils;
 import org.elasticsearch.hadoop.util.TrackingBytesArray;
 import org.elasticsearch.hadoop.util.unit.TimeValue;
 
@@ -50,7 +57,15 @@ public class RestRepository implements Closeable {
     private int bufferEntriesThreshold;
 
     private final BytesArray ba = new BytesArray(0);
-    private final TrackingBytesArray data = new TrackingBytesArray(ba);
+    private TrackingBytesArray data = new TrackingBytesArray(ba);
+    // set only when bulk writes are executed asynchronously
+    private BulkPipeline pipeline;
+    // set only when the batch size adapts to the feedback from Elasticsearch
+    private AdaptiveBatchSize batchSize;
+    // set only when documents are sent directly to the node hosting their primary shard (indexed by shard id)
+    private RestRepository[] shardWriters;
+    private List<RestRepository> nodeWriters;
+    private int nextNodeWriter = 0;
     private int dataEntries = 0;
     private boolean requiresRefreshAfterBulk = false;
     private boolean executedBulkWrite = false;
@@ -69,17 +84,85 @@ public class RestRepository implements Closeable {
     }
 
     /** postpone writing initialization since we can do only reading so there's no need to allocate buffers */
-    private void lazyInitWriting() {
+    private void lazyInitWriting() throws IOException {
         if (!writeInitialized) {
             writeInitialized = true;
 
-            ba.bytes(new byte[settings.getBatchSizeInBytes()], 0);
             trivialBytesRef = new BytesRef();
             bufferEntriesThreshold = settings.getBatchSizeInEntries();
             requiresRefreshAfterBulk = settings.getBatchRefreshAfterWrite();
 
             this.command = BulkCommands.create(settings);
+
+            if (settings.getBatchWriteShardRouting()) {
+                initShardRouting();
+            }
+
+            // buffers are used only if the data is not routed to the node repositories
+            if (shardWriters == null) {
+                if (settings.getBatchSizeAdaptive()) {
+                    batchSize = new AdaptiveBatchSize(settings);
+                }
+
+                int concurrency = settings.getBatchWriteConcurrency();
+                if (concurrency > 0) {
+                    pipeline = new BulkPipeline(settings, resource, concurrency, batchSize);
+                }
+                else {
+                    ba.bytes(new byte[settings.getBatchSizeInBytes()], 0);
+                }
+            }
+        }
+    }
+
+    private void initShardRouting() throws IOException {
+        Map<Shard, Node> primaries = getTargetPrimaryShards();
+        RestRepository[] writers = new RestRepository[primaries.size()];
+        Map<Node, RestRepository> writerPerNode = new LinkedHashMap<Node, RestRepository>();
+
+        for (Entry<Shard, Node> entry : primaries.entrySet()) {
+            int shardId = entry.getKey().getName();
+            if (shardId >= writers.length) {
+                log.warn(String.format("Cannot determine the shard layout of [%s]; disabling shard routing...", resource));
+                return;
+            }
+
+            Node node = entry.getValue();
+            RestRepository writer = writerPerNode.get(node);
+            if (writer == null) {
+                writer = new RestRepository(nodeSettings(node));
+                writerPerNode.put(node, writer);
+            }
+            writers[shardId] = writer;
+        }
+
+        if (writerPerNode.isEmpty()) {
+            return;
         }
+
+        shardWriters = writers;
+        nodeWriters = new ArrayList<RestRepository>(writerPerNode.values());
+
+        if (log.isDebugEnabled()) {
+            log.debug(String.format("Routing documents for [%s] to the nodes hosting their primary shards %s", resource, writerPerNode.keySet()));
+        }
+    }
+
+    private Settings nodeSettings(Node node) {
+        Settings nodeSettings = settings.copy();
+
+        // talk to the node directly, falling back to the rest of the nodes in case of failure
+        String address = node.getIpAddress() + ":" + node.getHttpPort();
+        List<String> nodes = SettingsUtils.nodes(settings);
+        nodes.remove(address);
+        nodes.add(0, address);
+        nodeSettings.setProperty(ConfigurationOptions.ES_HOST, "");
+        nodeSettings.setProperty(ConfigurationOptions.ES_NODES, StringUtils.concatenate(nodes, ","));
+
+        nodeSettings.setProperty(ConfigurationOptions.ES_BATCH_WRITE_SHARD_ROUTING, Boolean.FALSE.toString());
+        // refresh only once (by this repository), after all the nodes have been written to
+        nodeSettings.setProperty(ConfigurationOptions.ES_BATCH_WRITE_REFRESH, Boolean.FALSE.toString());
+        return nodeSettings;
     }
 
     /**
@@ -93,7 +176,9 @@ public class RestRepository implements Closeable {
         String[] scrollInfo = client.scan(query, body);
         String scrollId = scrollInfo[0];
         long totalSize = Long.parseLong(scrollInfo[1]);
-        return new ScrollQuery(this, scrollId, totalSize, reader);
+        return new ScrollQuery(this, scrollId, totalSize, reader, settings.getScrollPrefetch(),
+                // reusing objects requires the hits to be decoded one at a time
+                settings.getScrollStream() || settings.getScrollReuse());
     }
 
     /**
@@ -105,7 +190,13 @@ public class RestRepository implements Closeable {
         Assert.notNull(object, "no object data given");
 
         lazyInitWriting();
-        doWriteToIndex(command.write(object));
+        BytesRef payload = command.write(object);
+        if (shardWriters != null) {
+            writeToShard(command.routing(), payload);
+        }
+        else {
+            doWriteToIndex(payload);
+        }
     }
 
     /**
@@ -121,12 +212,38 @@ public class RestRepository implements Closeable {
         lazyInitWriting();
         trivialBytesRef.reset();
         trivialBytesRef.add(ba);
-        doWriteToIndex(trivialBytesRef);
+        if (shardWriters != null) {
+            // the routing is unknown
+            writeToShard(null, trivialBytesRef);
+        }
+        else {
+            doWriteToIndex(trivialBytesRef);
+        }
+    }
+
+    private void writeToShard(String routing, BytesRef payload) throws IOException {
+        RestRepository writer;
+        if (routing != null) {
+            writer = shardWriters[ShardRouting.shardId(routing, shardWriters.length)];
+        }
+        else {
+            // no routing (such as auto-generated ids) - spread the documents across the nodes
+            writer = nodeWriters.get(nextNodeWriter);
+            nextNodeWriter = (nextNodeWriter + 1) % nodeWriters.size();
+        }
+
+        writer.lazyInitWriting();
+        writer.doWriteToIndex(payload);
     }
 
     private void doWriteToIndex(BytesRef payload) throws IOException {
+        if (pipeline != null) {
+            data = pipeline.next();
+        }
+
         // check space first
-        if (payload.length() > ba.available()) {
+        int available = (batchSize != null ? batchSize.size() - data.length() : data.available());
+        if (payload.length() > available && data.length() > 0) {
             sendBatch();
         }
 
@@ -144,22 +261,52 @@ public class RestRepository implements Closeable {
             log.debug(String.format("Sending batch of [%d] bytes/[%s] entries", data.length(), dataEntries));
         }
 
-        client.bulk(resource, data);
-        data.reset();
+        if (pipeline != null) {
+            pipeline.send();
+            data = pipeline.next();
+        }
+        else {
+            long start = System.currentTimeMillis();
+            int rejected = client.bulk(resource, data);
+            if (batchSize != null) {
+                batchSize.update(System.currentTimeMillis() - start, rejected);
+            }
+            data.reset();
+        }
         dataEntries = 0;
         executedBulkWrite = true;
     }
 
     @Override
     public void close() {
+        // the first failure (in order) is reported, once all the resources are released
+        Exception failure = null;
+
         try {
             if (log.isDebugEnabled()) {
                 log.debug("Closing repository and connection to Elasticsearch ...");
             }
-            if (data.length() > 0) {
-                sendBatch();
+            if (nodeWriters != null) {
+                for (RestRepository writer : nodeWriters) {
+                    try {
+                        writer.close();
+                    } catch (RuntimeException ex) {
+                        failure = (failure != null ? failure : ex);
+                    }
+                    executedBulkWrite |= writer.executedBulkWrite;
+                }
             }
-            if (requiresRefreshAfterBulk && executedBulkWrite) {
+            try {
+                if (data.length() > 0) {
+                    sendBatch();
+                }
+            } finally {
+                if (pipeline != null) {
+                    // wait for the in-flight requests
+                    pipeline.close();
+                }
+            }
+            if (failure == null && requiresRefreshAfterBulk && executedBulkWrite) {
                 // refresh batch
                 client.refresh(resource);
 
@@ -168,10 +315,19 @@ public class RestRepository implements Closeable {
                 }
             }
         } catch (IOException ex) {
-            log.warn("Cannot flush data batch", ex);
+            failure = (failure != null ? failure : ex);
+        } catch (RuntimeException ex) {
+            failure = (failure != null ? failure : ex);
+        } finally {
+            client.close();
         }
 
-        client.close();
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure != null) {
+            throw new IllegalStateException("Cannot flush data batch", failure);
+        }
     }
 
     public RestClient getRestClient() {
@@ -199,6 +355,96 @@ public class RestRepository implements Closeable {
         return shards;
     }
 
+    /**
+     * Returns the statistics (docs and store size) of the given shard copies.
+     * Shards for which no statistics are found are not included.
+     *
+     * @param shards shard copies
+     * @return the statistics of each shard
+     */
+    @SuppressWarnings("unchecked")
+    public Map<Shard, ShardStats> getShardStats(Collection<Shard> shards) throws IOException {
+        Map<String, Object> indices = client.shardStats(resource);
+        Map<Shard, ShardStats> stats = new LinkedHashMap<Shard, ShardStats>(shards.size());
+
+        for (Shard shard : shards) {
+            Map<String, Object> index = (Map<String, Object>) indices.get(shard.getIndex());
+            Map<String, Object> indexShards = (index != null ? (Map<String, Object>) index.get("shards") : null);
+            List<Map<String, Object>> copies = (indexShards != null ? (List<Map<String, Object>>) indexShards.get(shard.getName().toString()) : null);
+
+            if (copies == null || copies.isEmpty()) {
+                continue;
+            }
+
+            // pick the copy on the shard node (the copies are identical in terms of docs but not always in size)
+            Map<String, Object> match = copies.get(0);
+            for (Map<String, Object> copy : copies) {
+                Map<String, Object> routing = (Map<String, Object>) copy.get("routing");
+                if (routing != null && shard.getNode() != null && shard.getNode().equals(routing.get("node"))) {
+                    match = copy;
+                    break;
+                }
+            }
+            stats.put(shard, new ShardStats(match));
+        }
+        return stats;
+    }
+
+    /**
+     * Returns the statistics (docs and store size) of the primary shards of the target indices, summed up.
+     * Note the statistics apply to the whole indices, regardless of the type used by the resource.
+     *
+     * @return the statistics of the target indices
+     */
+    public ShardStats getIndexStats() throws IOException {
+        return indexStats(client.shardStats(resource));
+    }
+
+    // sums up the primaries of each index
+    @SuppressWarnings("unchecked")
+    static ShardStats indexStats(Map<String, Object> indices) {
+        long docs = 0, size = 0;
+
+        for (Object index : indices.values()) {
+            Map<String, Object> primaries = (Map<String, Object>) ((Map<String, Object>) index).get("primaries");
+            if (primaries != null) {
+                ShardStats stats = new ShardStats(primaries);
+                docs += stats.getDocs();
+                size += stats.getSizeInBytes();
+            }
+        }
+        return new ShardStats(docs, size);
+    }
+
+    /**
+     * Returns the started copies (along with their nodes) of each target shard.
+     * Shards without any started copy are ignored.
+     *
+     * @return the started copies of each shard
+     */
+    public List<Map<Shard, Node>> getTargetShardCopies() throws IOException {
+        Map<String, Node> nodes = client.getNodes();
+
+        List<List<Map<String, Object>>> info = client.targetShards(resource);
+        List<Map<Shard, Node>> shards = new ArrayList<Map<Shard, Node>>(info.size());
+
+        for (List<Map<String, Object>> shardGroup : info) {
+            Map<Shard, Node> copies = new LinkedHashMap<Shard, Node>(shardGroup.size());
+            for (Map<String, Object> shardData : shardGroup) {
+                Shard shard = new Shard(shardData);
+                if (shard.getState().isStarted()) {
+                    Node node = nodes.get(shard.getNode());
+                    Assert.notNull(node, "Cannot find node with id [" + shard.getNode() + "]");
+                    copies.put(shard, node);
+                }
+            }
+            if (!copies.isEmpty()) {
+                shards.add(copies);
+            }
+        }
+        return shards;
+    }
+
     public Map<Shard, Node> getTargetPrimaryShards() throws IOException {
         Map<String, Node> nodes = client.getNodes();
 
@@ -228,6 +474,14 @@ public class RestRepository implements Closeable {
         return reader.read(client.scroll(scrollId));
     }
 
+    Map<String, Object> search(String query, BytesArray body) throws IOException {
+        return client.search(query, body);
+    }
+
+    long openScroll(String scrollId, ScrollReader reader) throws IOException {
+        return reader.open(client.scroll(scrollId));
+    }
+
     public boolean indexExists() throws IOException {
         return client.exists(resource.indexAndType());
     }
@@ -20,19 +20,29 @@ package org.elasticsearch.hadoop.rest;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.elasticsearch.hadoop.serialization.ScrollReader;
 
 /**
  * Result streaming data from a ElasticSearch query using the scan/scroll. Performs batching underneath to retrieve data in chunks.
+ * Optionally, the next pages can be fetched (and parsed) in the background while the current one is being consumed or the hits
+ * can be streamed, that is decoded one at a time straight from the response.
+ * A page that could not be prefetched is reported by {@link #next()}, as is (or wrapped if checked).
  */
 public class ScrollQuery implements Iterator<Object>, Closeable {
 
     private RestRepository client;
-    private String scrollId;
+    private volatile String scrollId;
     private List<Object[]> batch = Collections.emptyList();
     private boolean finished = false;
 
@@ -41,36 +51,83 @@ public class ScrollQuery implements Iterator<Object>, Closeable {
     private long size;
 
     private final ScrollReader reader;
+    // null when prefetching is disabled
+    private final Prefetcher prefetcher;
+    // failure of the (prefetched) page about to be consumed
+    private RuntimeException failure;
+
+    // streaming
+    private final boolean stream;
+    private Object[] hit;
 
     ScrollQuery(RestRepository client, String scrollId, long size, ScrollReader reader) {
+        this(client, scrollId, size, reader, 0, false);
+    }
+
+    ScrollQuery(RestRepository client, String scrollId, long size, ScrollReader reader, int prefetch, boolean stream) {
         this.client = client;
         this.scrollId = scrollId;
         this.size = size;
         this.reader = reader;
+        this.stream = stream;
+        this.prefetcher = (!stream && prefetch > 0 && size > 0 ? new Prefetcher(prefetch) : null);
     }
 
     @Override
     public void close() throws IOException {
         finished = true;
+        failure = null;
         batch = Collections.emptyList();
-        client.close();
+        hit = null;
+        try {
+            if (stream) {
+                reader.close();
+            }
+            if (prefetcher != null) {
+                prefetcher.close();
+            }
+        } finally {
+            client.close();
+        }
     }
 
     @Override
     public boolean hasNext() {
+        if (failure != null)
+            return true;
+
         if (finished)
             return false;
 
+        if (stream) {
+            return hasNextHit();
+        }
+
         if (batch.isEmpty() || batchIndex >= batch.size()) {
             if (read >= size) {
                 finished = true;
                 return false;
             }
 
-            try {
-                batch = client.scroll(scrollId, reader);
-            } catch (IOException ex) {
-                throw new IllegalStateException("Cannot retrieve scroll [" + scrollId + "]", ex);
+            if (prefetcher != null) {
+                try {
+                    batch = prefetcher.next();
+                } catch (IOException ex) {
+                    failure = new IllegalStateException("Cannot retrieve scroll [" + scrollId + "]", ex);
+                } catch (RuntimeException ex) {
+                    failure = ex;
+                }
+                // report the failed page from next() (where its entries would have been returned)
+                if (failure != null) {
+                    return true;
+                }
+            }
+            else {
+                try {
+                    batch = scroll();
+                } catch (IOException ex) {
+                    throw new IllegalStateException("Cannot retrieve scroll [" + scrollId + "]", ex);
+                }
             }
             read += batch.size();
             if (batch.isEmpty()) {
@@ -84,6 +141,110 @@ public class ScrollQuery implements Iterator<Object>, Closeable {
         return true;
     }
 
+    private boolean hasNextHit() {
+        if (hit == null) {
+            hit = reader.nextHit();
+
+            // current page consumed, move to the next one
+            if (hit == null) {
+                if (read >= size) {
+                    finished = true;
+                    return false;
+                }
+
+                try {
+                    client.openScroll(scrollId, reader);
+                } catch (IOException ex) {
+                    throw new IllegalStateException("Cannot retrieve scroll [" + scrollId + "]", ex);
+                }
+                if (reader.scrollId() != null) {
+                    scrollId = reader.scrollId();
+                }
+
+                hit = reader.nextHit();
+                if (hit == null) {
+                    finished = true;
+                    return false;
+                }
+            }
+            read++;
+        }
+        return true;
+    }
+
+    private List<Object[]> scroll() throws IOException {
+        List<Object[]> hits = client.scroll(scrollId, reader);
+        // the scroll id can change between requests - always use the latest one
+        if (reader.scrollId() != null) {
+            scrollId = reader.scrollId();
+        }
+        return (hits != null ? hits : Collections.<Object[]> emptyList());
+    }
+
+    /**
+     * Fetches the upcoming pages in the background. Since each scroll request depends on the id returned by the previous one,
+     * the pages are retrieved in order, by one thread which is the only one using the client and reader while prefetching.
+     */
+    private class Prefetcher {
+        private final ExecutorService executor = Executors.newSingleThreadExecutor(new DaemonThreadFactory("scroll"));
+        private final Deque<Future<List<Object[]>>> pages = new ArrayDeque<Future<List<Object[]>>>();
+
+        // accessed only by the fetching thread
+        private long fetched = 0;
+        private boolean exhausted = false;
+
+        Prefetcher(int depth) {
+            for (int i = 0; i < depth; i++) {
+                schedule();
+            }
+        }
+
+        private void schedule() {
+            pages.add(executor.submit(new Callable<List<Object[]>>() {
+                @Override
+                public List<Object[]> call() throws Exception {
+                    if (exhausted) {
+                        return Collections.emptyList();
+                    }
+                    List<Object[]> hits = scroll();
+                    fetched += hits.size();
+                    exhausted = (hits.isEmpty() || fetched >= size);
+                    return hits;
+                }
+            }));
+        }
+
+        List<Object[]> next() throws IOException {
+            Future<List<Object[]>> page = pages.poll();
+            // keep the queue full
+            schedule();
+
+            try {
+                return page.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for scroll", ex);
+            } catch (ExecutionException ex) {
+                Throwable cause = ex.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new IllegalStateException("Scroll request failed", cause);
+            }
+        }
+
+        void close() {
+            executor.shutdownNow();
+            pages.clear();
+        }
+    }
+
     public long getSize() {
         return size;
     }
@@ -94,6 +255,14 @@ public class ScrollQuery implements Iterator<Object>, Closeable {
 
     @Override
     public Object[] next() {
+        if (failure != null) {
+            throw failure;
+        }
+        if (stream) {
+            Object[] current = hit;
+            hit = null;
+            return current;
+        }
         return batch.get(batchIndex++);
     }
 
@@ -0,0 +1,166 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.hadoop.rest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.elasticsearch.hadoop.cfg.ConfigurationOptions;
+import org.elasticsearch.hadoop.cfg.Settings;
+import org.elasticsearch.hadoop.rest.dto.Shard;
+import org.elasticsearch.hadoop.util.StringUtils;
+
+/**
+ * Divides a shard into disjoint partitions, each one selected through a filter, so that a shard can be read by multiple tasks.
+ * The documents are partitioned either by hashing their <tt>_uid</tt> or through ranges on a user specified (numeric or date) field.
+ */
+public abstract class ShardPartitioner {
+
+    private static Log log = LogFactory.getLog(ShardPartitioner.class);
+
+    /**
+     * Counts the documents of the given shard that match the query.
+     *
+     * @param settings settings
+     * @param client repository
+     * @param shard shard
+     * @return the number of matching documents
+     */
+    public static long count(Settings settings, RestRepository client, Shard shard) {
+        return query(settings, shard).count(client);
+    }
+
+    /**
+     * Returns the filters partitioning the given shard into chunks of (roughly) {@link Settings#getInputSplitDocs()} documents.
+     * An empty list means the shard does not need to be (or cannot be) partitioned.
+     *
+     * @param settings settings
+     * @param client repository
+     * @param shard shard to partition
+     * @param docs number of (matching) documents in the shard
+     * @return the partition filters (in JSON format)
+     */
+    public static List<String> partition(Settings settings, RestRepository client, Shard shard, long docs) {
+        long docsPerSplit = settings.getInputSplitDocs();
+        if (docsPerSplit <= 0) {
+            return Collections.emptyList();
+        }
+
+        int partitions = (int) Math.min(Integer.MAX_VALUE, (docs + docsPerSplit - 1) / docsPerSplit);
+        if (partitions <= 1) {
+            return Collections.emptyList();
+        }
+
+        String field = settings.getInputSplitField();
+
+        List<String> filters = (StringUtils.hasText(field) ? rangeFilters(settings, client, shard, field, partitions) : hashFilters(settings, client, shard, partitions));
+        if (filters.isEmpty()) {
+            return filters;
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug(String.format("Partitioned shard [%s] with [%d] docs into [%d] partitions", shard.getName(), docs, filters.size()));
+        }
+        return filters;
+    }
+
+    private static QueryBuilder query(Settings settings, Shard shard) {
+        QueryBuilder query = QueryBuilder.query(settings).shard(shard.getName().toString());
+        if (StringUtils.hasText(shard.getIndex())) {
+            query.index(shard.getIndex());
+        }
+        return query;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> rangeFilters(Settings settings, RestRepository client, Shard shard, String field, int partitions) {
+        Map<String, Object> stats = null;
+        try {
+            Map<String, Object> facets = (Map<String, Object>) query(settings, shard).count(client, field).get("facets");
+            stats = (facets != null ? (Map<String, Object>) facets.get("stats") : null);
+        } catch (IllegalStateException ex) {
+            log.warn(String.format("Cannot compute statistics for field [%s] in shard [%s]; not partitioning shard", field, shard.getName()), ex);
+            return Collections.emptyList();
+        }
+
+        // the field might be missing or have no (numeric) values
+        Object min = (stats != null ? stats.get("min") : null);
+        Object max = (stats != null ? stats.get("max") : null);
+        if (!(min instanceof Number) || !(max instanceof Number) || !(stats.get("count") instanceof Number)
+                || ((Number) stats.get("count")).longValue() == 0) {
+            log.warn(String.format("No values found for field [%s] in shard [%s]; not partitioning shard", field, shard.getName()));
+            return Collections.emptyList();
+        }
+        return rangeFilters(field, ((Number) min).doubleValue(), ((Number) max).doubleValue(), partitions);
+    }
+
+    private static List<String> hashFilters(Settings settings, RestRepository client, Shard shard, int partitions) {
+        List<String> filters = hashFilters(partitions);
+        // the filters rely on (dynamic) scripting which might be disabled - check it is accepted before using it
+        try {
+            query(settings, shard).filter(filters.get(0)).count(client);
+        } catch (IllegalStateException ex) {
+            log.warn(String.format("Cannot partition shard [%s] through scripting (is dynamic scripting disabled?); "
+                    + "consider specifying a partitioning field through [%s]", shard.getName(), ConfigurationOptions.ES_INPUT_SPLIT_FIELD), ex);
+            return Collections.emptyList();
+        }
+        return filters;
+    }
+
+    static List<String> hashFilters(int partitions) {
+        List<String> filters = new ArrayList<String>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            filters.add(String.format("{\"script\":{\"script\":\"(doc['_uid'].value.hashCode() & 0x7fffffff) %% partitions == partition\","
+                    + "\"params\":{\"partitions\":%d,\"partition\":%d}}}", partitions, i));
+        }
+        return filters;
+    }
+
+    static List<String> rangeFilters(String field, double min, double max, int partitions) {
+        // use integral bounds so that date fields are handled as well
+        long lower = (long) Math.floor(min);
+        long upper = (long) Math.ceil(max);
+        long span = upper - lower;
+
+        int count = (int) Math.max(1, Math.min(partitions, span));
+        List<String> filters = new ArrayList<String>(count);
+
+        for (int i = 0; i < count; i++) {
+            long from = lower + (long) ((double) span * i / count);
+            String range = null;
+            if (i < count - 1) {
+                long to = lower + (long) ((double) span * (i + 1) / count);
+                range = String.format("{\"range\":{\"%s\":{\"gte\":%d,\"lt\":%d}}}", field, from, to);
+            }
+            else {
+                range = String.format("{\"range\":{\"%s\":{\"gte\":%d,\"lte\":%d}}}", field, from, upper);
+            }
+            // documents without a value are part of the first partition
+            if (i == 0) {
+                range = String.format("{\"or\":[%s,{\"missing\":{\"field\":\"%s\"}}]}", range, field);
+            }
+            filters.add(range);
+        }
+        return filters;
+    }
+}
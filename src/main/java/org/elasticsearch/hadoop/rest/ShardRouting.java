@@ -0,0 +1,40 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.hadoop.rest;
+
+/**
+ * Computes the target shard of a document the same way Elasticsearch does by default, namely through the DJB hash of its routing value
+ * (or id) modulo the number of primary shards.
+ * Used purely as an optimization; a different result (such as when the index uses a custom hash function) simply means the document is
+ * forwarded by Elasticsearch to its shard.
+ */
+abstract class ShardRouting {
+
+    static int shardId(String routing, int numberOfShards) {
+        return Math.abs(djbHash(routing) % numberOfShards);
+    }
+
+    static int djbHash(String value) {
+        long hash = 5381;
+        for (int i = 0; i < value.length(); i++) {
+            hash = ((hash << 5) + hash) + value.charAt(i);
+        }
+        return (int) hash;
+    }
+}
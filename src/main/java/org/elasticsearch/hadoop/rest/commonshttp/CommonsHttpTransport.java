@@ -19,14 +19,13 @@
 package org.elasticsearch.hadoop.rest.commonshttp;
 
 import java.io.IOException;
+import java.io.InputStream;
 
 import org.apache.commons.httpclient.DefaultHttpMethodRetryHandler;
 import org.apache.commons.httpclient.HostConfiguration;
 import org.apache.commons.httpclient.HttpClient;
-import org.apache.commons.httpclient.HttpConnectionManager;
 import org.apache.commons.httpclient.HttpMethod;
 import org.apache.commons.httpclient.HttpStatus;
-import org.apache.commons.httpclient.SimpleHttpConnectionManager;
 import org.apache.commons.httpclient.URI;
 import org.apache.commons.httpclient.methods.DeleteMethod;
 import org.apache.commons.httpclient.methods.EntityEnclosingMethod;
@@ -35,7 +34,6 @@ import org.apache.commons.httpclient.methods.HeadMethod;
 import org.apache.commons.httpclient.methods.PostMethod;
 import org.apache.commons.httpclient.methods.PutMethod;
 import org.apache.commons.httpclient.params.HttpClientParams;
-import org.apache.commons.httpclient.params.HttpConnectionManagerParams;
 import org.apache.commons.httpclient.params.HttpMethodParams;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -50,6 +48,7 @@ import org.elasticsearch.hadoop.util.StringUtils;
 
 /**
  * Transport implemented on top of Commons Http. Provides transport retries.
+ * Connections are pooled (and reused) across all transports within the same JVM.
  */
 public class CommonsHttpTransport implements Transport {
 
@@ -59,10 +58,17 @@ public class CommonsHttpTransport implements Transport {
     private static class ResponseInputStream extends DelegatingInputStream {
 
         private final HttpMethod method;
+        private final boolean hasBody;
 
         public ResponseInputStream(HttpMethod http) throws IOException {
-            super(http.getResponseBodyAsStream());
+            this(http, http.getResponseBodyAsStream());
+        }
+
+        private ResponseInputStream(HttpMethod http, InputStream body) {
+            super(body);
             this.method = http;
+            // HEAD requests (for example) have no body
+            this.hasBody = (body != null);
         }
 
         @Override
@@ -77,11 +83,14 @@ public class CommonsHttpTransport implements Transport {
 
         @Override
         public void close() throws IOException {
-            try {
-                super.close();
-            } catch (IOException e) {
-                // silently ignore
+            if (hasBody) {
+                try {
+                    super.close();
+                } catch (IOException e) {
+                    // silently ignore
+                }
             }
+            // return the connection to the pool
             method.releaseConnection();
         }
     }
@@ -92,7 +101,7 @@ public class CommonsHttpTransport implements Transport {
                 new DefaultHttpMethodRetryHandler(settings.getHttpRetries(), false));
         params.setConnectionManagerTimeout(settings.getHttpTimeout());
         params.setSoTimeout((int) settings.getHttpTimeout());
-        client = new HttpClient(params);
+        client = new HttpClient(params, PooledConnectionManager.get(settings));
 
         HostConfiguration hostConfig = new HostConfiguration();
 
@@ -102,10 +111,6 @@ public class CommonsHttpTransport implements Transport {
             throw new IllegalArgumentException("Invalid target URI " + host, ex);
         }
         client.setHostConfiguration(hostConfig);
-
-        HttpConnectionManagerParams connectionParams = client.getHttpConnectionManager().getParams();
-        // make sure to disable Nagle's protocol
-        connectionParams.setTcpNoDelay(true);
     }
 
     @Override
@@ -168,17 +173,8 @@ public class CommonsHttpTransport implements Transport {
 
     @Override
     public void close() {
-        HttpConnectionManager manager = client.getHttpConnectionManager();
-        if (manager instanceof SimpleHttpConnectionManager) {
-            try {
-                ((SimpleHttpConnectionManager) manager).closeIdleConnections(0);
-            } catch (NullPointerException npe) {
-                // ignore
-            } catch (Exception ex) {
-                // log - not much else to do
-                log.warn("Exception closing underlying HTTP manager", ex);
-            }
-        }
+        // nothing to do - the connections are released back to the (shared) pool as soon as their response is consumed
+        // and evicted once idle
     }
 
     private static String prefixUri(String uri) {
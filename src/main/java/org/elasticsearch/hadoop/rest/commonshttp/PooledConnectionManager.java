@@ -0,0 +1,71 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.hadoop.rest.commonshttp;
+
+import org.apache.commons.httpclient.HttpConnectionManager;
+import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
+import org.apache.commons.httpclient.params.HttpConnectionManagerParams;
+import org.apache.commons.httpclient.util.IdleConnectionTimeoutThread;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.elasticsearch.hadoop.cfg.Settings;
+
+/**
+ * Holder of the connection manager shared by all {@link CommonsHttpTransport}s within the same JVM.
+ * Pools connections across hosts so that keep-alive sockets survive transports being discarded (such as on fail-over)
+ * and are reused by subsequent tasks executed inside the same (reused) JVM.
+ * The pool is configured by the first settings that initialize it.
+ */
+abstract class PooledConnectionManager {
+
+    private static final Log log = LogFactory.getLog(PooledConnectionManager.class);
+
+    private static MultiThreadedHttpConnectionManager manager;
+    private static IdleConnectionTimeoutThread evictor;
+
+    static synchronized HttpConnectionManager get(Settings settings) {
+        if (manager == null) {
+            manager = new MultiThreadedHttpConnectionManager();
+
+            HttpConnectionManagerParams params = manager.getParams();
+            params.setDefaultMaxConnectionsPerHost(settings.getHttpMaxConnectionsPerHost());
+            params.setMaxTotalConnections(settings.getHttpMaxConnectionsTotal());
+            params.setSoTimeout((int) settings.getHttpTimeout());
+            // make sure to disable Nagle's protocol
+            params.setTcpNoDelay(true);
+
+            long idleTimeout = settings.getHttpIdleTimeout();
+            if (idleTimeout > 0) {
+                evictor = new IdleConnectionTimeoutThread();
+                evictor.setName("es-hadoop-http-idle-evictor");
+                evictor.setDaemon(true);
+                evictor.setConnectionTimeout(idleTimeout);
+                evictor.setTimeoutInterval(Math.max(1000, idleTimeout / 2));
+                evictor.addConnectionManager(manager);
+                evictor.start();
+            }
+
+            if (log.isDebugEnabled()) {
+                log.debug(String.format("Initialized HTTP connection pool w/ [%d] connections per host/[%d] in total; idle timeout [%d]ms",
+                        params.getDefaultMaxConnectionsPerHost(), params.getMaxTotalConnections(), idleTimeout));
+            }
+        }
+        return manager;
+    }
+}
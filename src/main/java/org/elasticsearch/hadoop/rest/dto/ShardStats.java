@@ -0,0 +1,58 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.hadoop.rest.dto;
+
+import java.util.Map;
+
+public class ShardStats {
+
+    private final long docs;
+    private final long sizeInBytes;
+
+    @SuppressWarnings("unchecked")
+    public ShardStats(Map<String, Object> data) {
+        docs = value((Map<String, Object>) data.get("docs"), "count");
+        sizeInBytes = value((Map<String, Object>) data.get("store"), "size_in_bytes");
+    }
+
+    public ShardStats(long docs, long sizeInBytes) {
+        this.docs = docs;
+        this.sizeInBytes = sizeInBytes;
+    }
+
+    private static long value(Map<String, Object> section, String name) {
+        Object value = (section != null ? section.get(name) : null);
+        return (value instanceof Number ? ((Number) value).longValue() : 0);
+    }
+
+    public long getDocs() {
+        return docs;
+    }
+
+    public long getSizeInBytes() {
+        return sizeInBytes;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("ShardStats[docs=").append(docs).append(", sizeInBytes=").append(sizeInBytes).append("]");
+        return builder.toString();
+    }
+}
@@ -22,9 +22,7 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -65,31 +63,37 @@ public class Field implements Serializable {
         return (iterator.hasNext() ? parseField(iterator.next(), null) : null);
     }
 
-    public static Map<String, FieldType> toLookupMap(Field field) {
-        if (field == null) {
-            return Collections.<String, FieldType> emptyMap();
+    public static FieldTrie toLookupTrie(Field field) {
+        if (field == null || field.properties() == null) {
+            return FieldTrie.EMPTY;
         }
 
-        Map<String, FieldType> map = new LinkedHashMap<String, FieldType>();
+        FieldTrie root = new FieldTrie(null);
 
         for (Field nestedField : field.properties()) {
-            add(map, nestedField, null);
+            add(root, root, nestedField, null);
         }
 
-        return map;
+        return root;
     }
 
-    static void add(Map<String, FieldType> fields, Field field, String parentName) {
+    static void add(FieldTrie root, FieldTrie parent, Field field, String parentName) {
+        String name = (parentName != null ? parentName + "." + field.name() : field.name());
+
         if (FieldType.OBJECT == field.type()) {
-            if (parentName != null) {
-                parentName = parentName + "." + field.name();
-            }
-            for (Field nestedField : field.properties()) {
-                add(fields, nestedField, parentName);
+            FieldTrie node = parent.add(field.name(), null);
+            if (field.properties() != null) {
+                for (Field nestedField : field.properties()) {
+                    add(root, node, nestedField, name);
+                }
             }
         }
         else {
-            fields.put(field.name(), field.type());
+            parent.add(field.name(), field.type());
+            // 'fields' responses use the full (dotted) name of nested fields
+            if (parentName != null) {
+                root.add(name, field.type());
+            }
         }
     }
 
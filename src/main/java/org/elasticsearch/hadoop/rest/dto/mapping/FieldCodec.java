@@ -0,0 +1,130 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.hadoop.rest.dto.mapping;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.codec.binary.Hex;
+import org.elasticsearch.hadoop.serialization.FieldType;
+import org.elasticsearch.hadoop.serialization.SerializationException;
+import org.elasticsearch.hadoop.util.BytesArray;
+import org.elasticsearch.hadoop.util.FastByteArrayInputStream;
+import org.elasticsearch.hadoop.util.FastByteArrayOutputStream;
+
+/**
+ * Compact, versioned binary encoding of a {@link Field} mapping. Meant for shipping the mapping to the tasks without relying on
+ * Java serialization; decoded mappings are cached (per JVM) by the hash of their encoding so each one is decoded only once.
+ */
+public abstract class FieldCodec {
+
+    private static final byte VERSION = 1;
+    private static final int CACHE_SIZE = 16;
+
+    private static final Map<String, Field> CACHE = Collections.synchronizedMap(new LinkedHashMap<String, Field>(CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Field> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    });
+
+    public static byte[] encode(Field field) {
+        FastByteArrayOutputStream bos = new FastByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bos);
+        try {
+            out.writeByte(VERSION);
+            write(field, out);
+            out.flush();
+        } catch (IOException ex) {
+            throw new SerializationException("Cannot encode mapping", ex);
+        }
+        BytesArray bytes = bos.bytes();
+        return Arrays.copyOf(bytes.bytes(), bytes.length());
+    }
+
+    private static void write(Field field, DataOutputStream out) throws IOException {
+        out.writeUTF(field.name());
+        out.writeUTF(field.type().name());
+        Field[] properties = field.properties();
+        out.writeInt(properties != null ? properties.length : -1);
+        if (properties != null) {
+            for (Field property : properties) {
+                write(property, out);
+            }
+        }
+    }
+
+    public static Field decode(byte[] data) {
+        DataInputStream in = new DataInputStream(new FastByteArrayInputStream(data));
+        try {
+            byte version = in.readByte();
+            if (version != VERSION) {
+                throw new SerializationException(String.format("Unsupported mapping encoding version [%d]; expected [%d]", version, VERSION));
+            }
+            return read(in);
+        } catch (IOException ex) {
+            throw new SerializationException("Cannot decode mapping", ex);
+        }
+    }
+
+    private static Field read(DataInputStream in) throws IOException {
+        String name = in.readUTF();
+        FieldType type = FieldType.valueOf(in.readUTF());
+        int size = in.readInt();
+        Field[] properties = null;
+        if (size >= 0) {
+            properties = new Field[size];
+            for (int i = 0; i < size; i++) {
+                properties[i] = read(in);
+            }
+        }
+        return new Field(name, type, properties);
+    }
+
+    /**
+     * Returns the decoded mapping for the given encoding, decoding it only if it is not already cached.
+     *
+     * @param hash hash of the encoding (as returned by {@link #hash(byte[])})
+     * @param data encoded mapping
+     * @return the decoded mapping
+     */
+    public static Field decode(String hash, byte[] data) {
+        Field field = CACHE.get(hash);
+        if (field == null) {
+            field = decode(data);
+            CACHE.put(hash, field);
+        }
+        return field;
+    }
+
+    public static String hash(byte[] data) {
+        try {
+            return new String(Hex.encodeHex(MessageDigest.getInstance("MD5").digest(data)));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("Cannot hash mapping", ex);
+        }
+    }
+}
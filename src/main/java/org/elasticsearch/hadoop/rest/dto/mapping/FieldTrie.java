@@ -0,0 +1,69 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.hadoop.rest.dto.mapping;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.elasticsearch.hadoop.serialization.FieldType;
+
+/**
+ * Precompiled lookup structure for the types of a mapping. Each node corresponds to a field and is resolved from its parent
+ * by the field name, allowing the mapping to be walked while descending a JSON document without building any path.
+ * Only leaf fields have a type; object fields (and unknown fields) have none.
+ */
+public class FieldTrie {
+
+    public static final FieldTrie EMPTY = new FieldTrie(null);
+
+    private final FieldType type;
+    private Map<String, FieldTrie> children;
+
+    FieldTrie(FieldType type) {
+        this.type = type;
+    }
+
+    /**
+     * Returns the type of this field or null if it is an object (or unknown).
+     */
+    public FieldType type() {
+        return type;
+    }
+
+    /**
+     * Returns the node of the given child field or null if the field is not mapped.
+     */
+    public FieldTrie child(String name) {
+        return (children != null ? children.get(name) : null);
+    }
+
+    FieldTrie add(String name, FieldType type) {
+        if (children == null) {
+            children = new HashMap<String, FieldTrie>();
+        }
+        FieldTrie child = new FieldTrie(type);
+        children.put(name, child);
+        return child;
+    }
+
+    @Override
+    public String toString() {
+        return (children != null ? children.toString() : String.valueOf(type));
+    }
+}
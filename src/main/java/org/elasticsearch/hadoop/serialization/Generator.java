@@ -33,6 +33,13 @@ public interface Generator extends Closeable {
 
     void writeFieldName(String name);
 
+    /**
+     * Writes a field name that is used repeatedly; its encoded form is cached (inside the given name) and reused.
+     *
+     * @param name field name
+     */
+    void writeFieldName(FieldName name);
+
     void writeString(String text);
 
     void writeUTF8String(byte[] text, int offset, int len);
@@ -23,11 +23,11 @@ import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.elasticsearch.hadoop.rest.dto.mapping.Field;
+import org.elasticsearch.hadoop.rest.dto.mapping.FieldTrie;
 import org.elasticsearch.hadoop.serialization.Parser.NumberType;
 import org.elasticsearch.hadoop.serialization.Parser.Token;
 import org.elasticsearch.hadoop.serialization.builder.ValueReader;
@@ -39,7 +39,7 @@ import org.elasticsearch.hadoop.util.IOUtils;
 
 /**
  * Class handling the conversion of data from ES to target objects. It performs tree navigation tied to a potential ES mapping (if available).
- * Expected to read a _search response.
+ * Expected to read a _search response, either entirely ({@link #read(InputStream)}) or one hit at a time ({@link #open(InputStream)}).
  */
 public class ScrollReader {
 
@@ -47,22 +47,89 @@ public class ScrollReader {
 
     private Parser parser;
     private final ValueReader reader;
-    private final Map<String, FieldType> esMapping;
+    private final FieldTrie esMapping;
     private final boolean trace = log.isTraceEnabled();
+    private String scrollId;
 
     private static final String[] HITS = new String[] { "hits" };
     private static final String[] ID = new String[] { "_id" };
     private static final String[] FIELDS = new String[] { "fields" };
     private static final String[] SOURCE = new String[] { "_source" };
     private static final String[] TOTAL = new String[] { "hits", "total" };
+    private static final String[] SCROLL_ID = new String[] { "_scroll_id" };
 
     public ScrollReader(ValueReader reader, Field rootField) {
         this.reader = reader;
-        esMapping = Field.toLookupMap(rootField);
+        esMapping = Field.toLookupTrie(rootField);
     }
 
 
     public List<Object[]> read(InputStream content) throws IOException {
+        this.parser = createParser(content);
+
+        try {
+            return read();
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * Streaming alternative to {@link #read(InputStream)}: positions the reader on the hits of the given response, which are
+     * then decoded one by one through {@link #nextHit()}. The content is kept open until all the hits are read or the reader is closed.
+     *
+     * @param content scroll response
+     * @return the total number of hits
+     */
+    public long open(InputStream content) throws IOException {
+        close();
+        this.parser = createParser(content);
+
+        boolean hasHits = false;
+        try {
+            long hits = hits();
+            if (hits > 0) {
+                Token token = ParsingUtils.seek(parser, HITS);
+                Assert.isTrue(token == Token.START_ARRAY, "invalid response");
+                hasHits = true;
+            }
+            return hits;
+        } finally {
+            if (!hasHits) {
+                close();
+            }
+        }
+    }
+
+    /**
+     * Reads the next hit of the response opened through {@link #open(InputStream)}.
+     *
+     * @return the next hit ([id, document]) or null if there are no more hits
+     */
+    public Object[] nextHit() {
+        if (parser == null) {
+            return null;
+        }
+
+        Token token = parser.nextToken();
+        if (token == Token.END_ARRAY || token == null) {
+            close();
+            return null;
+        }
+        return readHit();
+    }
+
+    /**
+     * Closes the response currently read (if any).
+     */
+    public void close() {
+        if (parser != null) {
+            parser.close();
+            parser = null;
+        }
+    }
+
+    private Parser createParser(InputStream content) throws IOException {
         Assert.notNull(content);
 
         if (log.isTraceEnabled()) {
@@ -72,13 +139,7 @@ public class ScrollReader {
             log.trace("About to parse scroll content " + copy);
         }
 
-        this.parser = new JacksonJsonParser(content);
-
-        try {
-            return read();
-        } finally {
-            parser.close();
-        }
+        return new JacksonJsonParser(content);
     }
 
     private List<Object[]> read() {
@@ -110,7 +171,7 @@ public class ScrollReader {
         result[0] = parser.text();
         Token seek = ParsingUtils.seek(parser, SOURCE, FIELDS);
         // no fields found
-        result[1] = (seek == null ? Collections.emptyMap() : read(t, null));
+        result[1] = (seek == null ? Collections.emptyMap() : read(t, esMapping));
 
         if (trace) {
             log.trace(String.format("Read hit result [%s]=[%s]", result[0], result[1]));
@@ -120,13 +181,29 @@ public class ScrollReader {
     }
 
     private long hits() {
-        ParsingUtils.seek(parser, TOTAL);
+        scrollId = null;
+        // _scroll_id (if present) precedes the hits
+        ParsingUtils.seek(parser, SCROLL_ID, TOTAL);
+        if (SCROLL_ID[0].equals(parser.currentName())) {
+            scrollId = parser.text();
+            ParsingUtils.seek(parser, TOTAL);
+        }
         long hits = parser.longValue();
         return hits;
     }
 
+    /**
+     * Returns the scroll id found in the last read response (if any). Subsequent scroll requests need to use it since
+     * the id can change between requests.
+     *
+     * @return the scroll id of the last read response or null if none was found
+     */
+    public String scrollId() {
+        return scrollId;
+    }
+
 
-    protected Object read(Token t, String fieldMapping) {
+    protected Object read(Token t, FieldTrie fieldMapping) {
         // handle nested nodes first
         if (t == Token.START_OBJECT) {
             return map(fieldMapping);
@@ -149,12 +226,45 @@ public class ScrollReader {
             return null;
         }
 
-        Object obj = reader.readValue(parser, parser.text(), esType);
+        Object obj = readNative(esType);
+        if (obj == null) {
+            obj = reader.readValue(parser, parser.text(), esType);
+        }
         parser.nextToken();
         return obj;
     }
 
-    protected Object list(String fieldMapping) {
+    // fast path for JSON numbers/booleans - reads them directly from the parser, without going through text()
+    // returns null if the value needs to be read as text (mapping mismatch, dates or numbers sent as strings)
+    private Object readNative(FieldType esType) {
+        if (esType == null) {
+            return null;
+        }
+
+        Token t = parser.currentToken();
+
+        if (t == Token.VALUE_NUMBER) {
+            switch (esType) {
+            case INTEGER:
+                return reader.readInteger(parser.intValue());
+            case TOKEN_COUNT:
+            case LONG:
+                return reader.readLong(parser.longValue());
+            case FLOAT:
+                return reader.readFloat(parser.floatValue());
+            case DOUBLE:
+                return reader.readDouble(parser.doubleValue());
+            default:
+                return null;
+            }
+        }
+        if (t == Token.VALUE_BOOLEAN && esType == FieldType.BOOLEAN) {
+            return reader.readBoolean(parser.booleanValue());
+        }
+        return null;
+    }
+
+    protected Object list(FieldTrie fieldMapping) {
         Token t = parser.currentToken();
 
         if (t == null) {
@@ -178,7 +288,7 @@ public class ScrollReader {
         return array;
     }
 
-    protected Object map(String fieldMapping) {
+    protected Object map(FieldTrie fieldMapping) {
         Token t = parser.currentToken();
 
         if (t == null) {
@@ -192,17 +302,11 @@ public class ScrollReader {
 
         for (; parser.currentToken() != Token.END_OBJECT; ) {
             String currentName = parser.currentName();
-            String nodeMapping = fieldMapping;
-
-            if (nodeMapping != null) {
-                nodeMapping = fieldMapping + "/" + currentName;
-            }
-            else {
-                nodeMapping = currentName;
-            }
+            // walk the mapping along with the document (unmapped fields have no node)
+            FieldTrie nodeMapping = (fieldMapping != null ? fieldMapping.child(currentName) : null);
 
             // Must point to field name
-            Object fieldName = reader.readValue(parser, currentName, FieldType.STRING);
+            Object fieldName = reader.readFieldName(currentName);
             // And then the value...
             reader.addToMap(map, fieldName, read(parser.nextToken(), nodeMapping));
         }
@@ -213,8 +317,8 @@ public class ScrollReader {
         return map;
     }
 
-    private FieldType mapping(String fieldMapping) {
-        FieldType esType = esMapping.get(fieldMapping);
+    private FieldType mapping(FieldTrie fieldMapping) {
+        FieldType esType = (fieldMapping != null ? fieldMapping.type() : null);
 
         if (esType != null) {
             return esType;
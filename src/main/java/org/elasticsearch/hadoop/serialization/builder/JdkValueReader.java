@@ -71,6 +71,37 @@ public class JdkValueReader implements SettingsAware, ValueReader {
         return null;
     }
 
+    @Override
+    public Object readFieldName(String name) {
+        // the parser already interns the field names
+        return name;
+    }
+
+    @Override
+    public Object readInteger(int value) {
+        return value;
+    }
+
+    @Override
+    public Object readLong(long value) {
+        return value;
+    }
+
+    @Override
+    public Object readFloat(float value) {
+        return value;
+    }
+
+    @Override
+    public Object readDouble(double value) {
+        return value;
+    }
+
+    @Override
+    public Object readBoolean(boolean value) {
+        return value;
+    }
+
     @SuppressWarnings("rawtypes")
     @Override
     public Map createMap() {
@@ -111,7 +142,7 @@ public class JdkValueReader implements SettingsAware, ValueReader {
     }
 
     protected Object parseBoolean(String value) {
-        return Boolean.parseBoolean(value);
+        return readBoolean(Boolean.parseBoolean(value));
     }
 
     protected Object doubleValue(String value) {
@@ -119,7 +150,7 @@ public class JdkValueReader implements SettingsAware, ValueReader {
     }
 
     protected Object parseDouble(String value) {
-        return Double.parseDouble(value);
+        return readDouble(Double.parseDouble(value));
     }
 
     protected Object floatValue(String value) {
@@ -127,7 +158,7 @@ public class JdkValueReader implements SettingsAware, ValueReader {
     }
 
     protected Object parseFloat(String value) {
-        return Float.parseFloat(value);
+        return readFloat(Float.parseFloat(value));
     }
 
     protected Object longValue(String value) {
@@ -135,7 +166,7 @@ public class JdkValueReader implements SettingsAware, ValueReader {
     }
 
     protected Object parseLong(String value) {
-        return Long.parseLong(value);
+        return readLong(Long.parseLong(value));
     }
 
     protected Object intValue(String value) {
@@ -143,7 +174,7 @@ public class JdkValueReader implements SettingsAware, ValueReader {
     }
 
     protected Object parseInteger(String value) {
-        return Integer.parseInt(value);
+        return readInteger(Integer.parseInt(value));
     }
 
     protected Object textValue(String value) {
@@ -31,6 +31,27 @@ public interface ValueReader {
 
     Object readValue(Parser parser, String value, FieldType esType);
 
+    /**
+     * Returns the key used for the given field name. Field names repeat across documents so implementations are
+     * encouraged to return canonical (shared) instances; such keys need to be immutable.
+     *
+     * @param name field name (as an interned string)
+     * @return the map key for the field name
+     */
+    Object readFieldName(String name);
+
+    // typed callbacks - used for JSON numbers and booleans (mapped accordingly) to avoid the round-trip through String
+
+    Object readInteger(int value);
+
+    Object readLong(long value);
+
+    Object readFloat(float value);
+
+    Object readDouble(double value);
+
+    Object readBoolean(boolean value);
+
     Object createMap();
 
     void addToMap(Object map, Object key, Object value);
@@ -156,8 +156,11 @@ abstract class AbstractCommandFactory implements CommandFactory {
         before = compact(before);
         after = compact(after);
 
+        // Elasticsearch routes the documents based on their routing, parent or id (in this order)
+        FieldExtractor routingKey = (routing() != null ? routing() : (parent() != null ? parent() : id()));
+
         // compress pieces
-        return (jsonInput ? new JsonTemplatedCommand(before, after, jsonExtractors, settings) : new TemplatedCommand(before, after, valueWriter));
+        return (jsonInput ? new JsonTemplatedCommand(before, after, jsonExtractors, settings, routingKey) : new TemplatedCommand(before, after, valueWriter, routingKey));
     }
 
     protected void writeAfterObject(List<Object> after) {
@@ -36,4 +36,12 @@ public interface Command {
      * @return
      */
     BytesRef write(Object object);
+
+    /**
+     * Returns the value used by Elasticsearch for routing (the routing, parent or id in this order) the object last written.
+     * Returns null if no such value is available (for example when the id is automatically generated).
+     *
+     * @return routing value of the last written object
+     */
+    String routing();
 }
@@ -26,6 +26,7 @@ import org.elasticsearch.hadoop.cfg.Settings;
 import org.elasticsearch.hadoop.serialization.BytesConverter;
 import org.elasticsearch.hadoop.serialization.builder.NoOpValueWriter;
 import org.elasticsearch.hadoop.serialization.builder.ValueWriter;
+import org.elasticsearch.hadoop.serialization.field.FieldExtractor;
 import org.elasticsearch.hadoop.serialization.field.JsonFieldExtractors;
 import org.elasticsearch.hadoop.util.Assert;
 import org.elasticsearch.hadoop.util.BytesArray;
@@ -42,8 +43,8 @@ class JsonTemplatedCommand extends TemplatedCommand {
     private final BytesConverter jsonWriter;
 
     public JsonTemplatedCommand(Collection<Object> beforeObject, Collection<Object> afterObject,
-            JsonFieldExtractors jsonExtractors, Settings settings) {
-        super(beforeObject, afterObject, new NoOpValueWriter());
+            JsonFieldExtractors jsonExtractors, Settings settings, FieldExtractor routingExtractor) {
+        super(beforeObject, afterObject, new NoOpValueWriter(), routingExtractor);
         this.jsonExtractors = jsonExtractors;
         this.jsonWriter = ObjectUtils.instantiate(settings.getSerializerBytesConverterClassName(), settings);
     }
@@ -22,6 +22,7 @@ import java.util.Collection;
 
 import org.elasticsearch.hadoop.serialization.builder.ContentBuilder;
 import org.elasticsearch.hadoop.serialization.builder.ValueWriter;
+import org.elasticsearch.hadoop.serialization.field.BytesFieldExtractor;
 import org.elasticsearch.hadoop.serialization.field.FieldExtractor;
 import org.elasticsearch.hadoop.util.Assert;
 import org.elasticsearch.hadoop.util.BytesArray;
@@ -44,6 +45,13 @@ class TemplatedCommand implements Command {
         }
 
         BytesArray write(Object object) {
+            // write the value straight into the pad if possible
+            if (extractor instanceof BytesFieldExtractor) {
+                if (!((BytesFieldExtractor) extractor).field(object, pad)) {
+                    throw new IllegalArgumentException(String.format("[%s] cannot extract value from object [%s]", extractor, object));
+                }
+                return pad;
+            }
             String value = extractor.field(object);
             Assert.notNull(value, String.format("[%s] cannot extract value from object [%s]", extractor, object));
             pad.bytes(value);
@@ -58,11 +66,14 @@ class TemplatedCommand implements Command {
     private BytesRef ref = new BytesRef();
 
     private final ValueWriter<?> valueWriter;
+    private final FieldExtractor routingExtractor;
+    private Object lastObject;
 
-    TemplatedCommand(Collection<Object> beforeObject, Collection<Object> afterObject, ValueWriter<?> valueWriter) {
+    TemplatedCommand(Collection<Object> beforeObject, Collection<Object> afterObject, ValueWriter<?> valueWriter, FieldExtractor routingExtractor) {
         this.beforeObject = beforeObject;
         this.afterObject = afterObject;
         this.valueWriter = valueWriter;
+        this.routingExtractor = routingExtractor;
     }
 
     @Override
@@ -71,6 +82,7 @@ class TemplatedCommand implements Command {
         scratchPad.reset();
 
         Object processed = preProcess(object, scratchPad);
+        lastObject = processed;
         // write before object
         writeTemplate(beforeObject, processed);
         // write object
@@ -81,6 +93,12 @@ class TemplatedCommand implements Command {
         return ref;
     }
 
+    @Override
+    public String routing() {
+        // computed lazily since it's typically not needed
+        return (routingExtractor != null && lastObject != null ? routingExtractor.field(lastObject) : null);
+    }
+
     protected Object preProcess(Object object, BytesArray storage) {
         return object;
     }
@@ -0,0 +1,36 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.hadoop.serialization.field;
+
+import org.elasticsearch.hadoop.util.BytesArray;
+
+/**
+ * {@link FieldExtractor} able to write the extracted value (as UTF-8) directly into a buffer, without going through a {@link String}.
+ */
+public interface BytesFieldExtractor extends FieldExtractor {
+
+    /**
+     * Writes the value of the field (as UTF-8) into the given buffer, replacing its content.
+     *
+     * @param target object to extract the value from
+     * @param to buffer receiving the value
+     * @return true if the value was extracted, false otherwise
+     */
+    boolean field(Object target, BytesArray to);
+}
@@ -20,27 +20,54 @@ package org.elasticsearch.hadoop.serialization.field;
 
 import org.elasticsearch.hadoop.cfg.Settings;
 import org.elasticsearch.hadoop.serialization.SettingsAware;
+import org.elasticsearch.hadoop.util.BytesArray;
+import org.elasticsearch.hadoop.util.StringUtils;
 
-public class ConstantFieldExtractor implements FieldExtractor, SettingsAware {
+public class ConstantFieldExtractor implements BytesFieldExtractor, SettingsAware {
 
     public static final String PROPERTY = "org.elasticsearch.hadoop.serialization.ConstantFieldExtractor.property";
     private String fieldName;
     private String value;
+    private byte[] valueBytes;
 
     @Override
     public final String field(Object target) {
         return (value != null ? value : extractField(target));
     }
 
+    @Override
+    public final boolean field(Object target, BytesArray to) {
+        if (valueBytes != null) {
+            to.reset();
+            to.add(valueBytes);
+            return true;
+        }
+        return extractField(target, to);
+    }
+
     protected String extractField(Object target) {
         return null;
     }
 
+    /**
+     * Byte-based variant of {@link #extractField(Object)}. Subclasses able to provide the UTF-8 representation of the value
+     * directly should override this method; by default, the value is extracted as a String and then encoded.
+     */
+    protected boolean extractField(Object target, BytesArray to) {
+        String value = extractField(target);
+        if (value == null) {
+            return false;
+        }
+        to.bytes(value);
+        return true;
+    }
+
     @Override
     public void setSettings(Settings settings) {
         fieldName = property(settings);
         if (fieldName.startsWith("<") && fieldName.endsWith(">")) {
             this.value = fieldName.substring(1, fieldName.length() - 1);
+            this.valueBytes = value.getBytes(StringUtils.UTF_8);
         }
     }
 
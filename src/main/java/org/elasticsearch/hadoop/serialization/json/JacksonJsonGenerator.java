@@ -25,6 +25,8 @@ import org.apache.commons.logging.LogFactory;
 import org.codehaus.jackson.JsonEncoding;
 import org.codehaus.jackson.JsonFactory;
 import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.io.SerializedString;
+import org.elasticsearch.hadoop.serialization.FieldName;
 import org.elasticsearch.hadoop.serialization.Generator;
 import org.elasticsearch.hadoop.serialization.SerializationException;
 import org.elasticsearch.hadoop.util.ObjectUtils;
@@ -107,6 +109,24 @@ public class JacksonJsonGenerator implements Generator {
         }
     }
 
+    @Override
+    public void writeFieldName(FieldName name) {
+        if (!JACKSON_16) {
+            writeFieldName(name.getName());
+            return;
+        }
+        try {
+            Object encoded = name.getEncoded();
+            if (!(encoded instanceof SerializedString)) {
+                encoded = new SerializedString(name.getName());
+                name.setEncoded(encoded);
+            }
+            generator.writeFieldName((SerializedString) encoded);
+        } catch (IOException ex) {
+            throw new SerializationException(ex);
+        }
+    }
+
     @Override
     public void writeString(String text) {
         try {
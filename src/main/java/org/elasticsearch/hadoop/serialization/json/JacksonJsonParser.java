@@ -38,6 +38,9 @@ public class JacksonJsonParser implements Parser {
         JSON_FACTORY.configure(JsonParser.Feature.ALLOW_UNQUOTED_FIELD_NAMES, true);
         JSON_FACTORY.configure(JsonGenerator.Feature.QUOTE_FIELD_NAMES, true);
         JSON_FACTORY.configure(JsonParser.Feature.ALLOW_COMMENTS, true);
+        // field names are canonical (interned) strings - relied upon by the value readers
+        JSON_FACTORY.configure(JsonParser.Feature.CANONICALIZE_FIELD_NAMES, true);
+        JSON_FACTORY.configure(JsonParser.Feature.INTERN_FIELD_NAMES, true);
     }
 
     public JacksonJsonParser(InputStream in) {
@@ -32,6 +32,17 @@ abstract class ArrayUtils {
             return array;
     }
 
+    static int[] grow(int[] array, int minSize) {
+        assert minSize >= 0 : "size must be positive (got " + minSize + "): likely integer overflow?";
+        if (array.length < minSize) {
+            int[] newArray = new int[oversize(minSize, 4)];
+            System.arraycopy(array, 0, newArray, 0, array.length);
+            return newArray;
+        }
+        else
+            return array;
+    }
+
     static int oversize(int minTargetSize, int bytesPerElement) {
 
         if (minTargetSize < 0) {
@@ -20,53 +20,24 @@ package org.elasticsearch.hadoop.util;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.BitSet;
 
 /**
  *  Wrapper class around a {@link BytesArray} with 'awarness' around the underlying content.
  *  Considers each addition an entry and allows removal of specific entries (and by that skipping their backing content).
+ *  Entries are tracked through parallel offset/length arrays; removing one simply marks it as such, the arrays being compacted only when
+ *  retaining entries (typically before retrying them).
  */
 public class TrackingBytesArray implements ByteSequence {
 
-    private static class Entry {
-        final int offset;
-        final int length;
-
-        Entry(int offset, int length) {
-            this.offset = offset;
-            this.length = length;
-        }
-
-        @Override
-        public int hashCode() {
-            final int prime = 31;
-            int result = 1;
-            result = prime * result + length;
-            result = prime * result + offset;
-            return result;
-        }
-
-        @Override
-        public boolean equals(Object obj) {
-            if (this == obj)
-                return true;
-            if (obj == null)
-                return false;
-            if (getClass() != obj.getClass())
-                return false;
-            Entry other = (Entry) obj;
-            if (length != other.length)
-                return false;
-            if (offset != other.offset)
-                return false;
-            return true;
-        }
-    }
-
     private final BytesArray data;
     private int size = 0;
-    private List<Entry> entries = new LinkedList<TrackingBytesArray.Entry>();
+
+    private int[] offsets = new int[16];
+    private int[] lengths = new int[16];
+    // number of entries (including the removed ones)
+    private int entries = 0;
+    private final BitSet removed = new BitSet();
 
     public TrackingBytesArray(BytesArray data) {
         this.data = data;
@@ -86,15 +57,77 @@ public class TrackingBytesArray implements ByteSequence {
         return size;
     }
 
+    public int available() {
+        return data.available();
+    }
+
     private void addEntry(int length) {
+        if (entries == offsets.length) {
+            offsets = ArrayUtils.grow(offsets, entries + 1);
+            lengths = ArrayUtils.grow(lengths, entries + 1);
+        }
         // implied offset - data.size
-        entries.add(new Entry(data.size, length));
+        offsets[entries] = data.size;
+        lengths[entries] = length;
+        entries++;
         size += length;
     }
 
+    /**
+     * Removes the index-th entry (among the entries not removed so far). Locating the entry requires walking the removed ones,
+     * so removing multiple entries this way is quadratic.
+     *
+     * @param index position of the entry to remove
+     * @deprecated use {@link #retain(BitSet)} which handles all the entries in one pass
+     */
+    @Deprecated
     public void remove(int index) {
-        Entry entry = entries.remove(index);
-        size -= entry.length;
+        int slot = slot(index);
+        removed.set(slot);
+        size -= lengths[slot];
+    }
+
+    // returns the slot of the index-th entry that hasn't been removed
+    private int slot(int index) {
+        if (removed.isEmpty()) {
+            return index;
+        }
+        int slot = removed.nextClearBit(0);
+        for (int i = 0; i < index; i++) {
+            slot = removed.nextClearBit(slot + 1);
+        }
+        return slot;
+    }
+
+    /**
+     * Retains only the entries whose position is marked in the given set, removing the rest.
+     *
+     * @param positions entries to retain
+     */
+    public void retain(BitSet positions) {
+        compact();
+        for (int slot = 0; slot < entries; slot++) {
+            if (!positions.get(slot)) {
+                removed.set(slot);
+                size -= lengths[slot];
+            }
+        }
+        compact();
+    }
+
+    // drops the removed entries from the tracking arrays; the underlying content is left untouched
+    private void compact() {
+        if (removed.isEmpty()) {
+            return;
+        }
+        int live = 0;
+        for (int slot = removed.nextClearBit(0); slot < entries; slot = removed.nextClearBit(slot + 1)) {
+            offsets[live] = offsets[slot];
+            lengths[live] = lengths[slot];
+            live++;
+        }
+        entries = live;
+        removed.clear();
     }
 
     public void writeTo(OutputStream out) throws IOException {
@@ -102,24 +135,39 @@ public class TrackingBytesArray implements ByteSequence {
             return;
         }
 
-        for (Entry entry : entries) {
-            out.write(data.bytes, entry.offset, entry.length);
+        // write adjacent entries in one go
+        int offset = -1, length = 0;
+        for (int slot = removed.nextClearBit(0); slot < entries; slot = removed.nextClearBit(slot + 1)) {
+            if (offset >= 0 && offset + length == offsets[slot]) {
+                length += lengths[slot];
+            }
+            else {
+                if (length > 0) {
+                    out.write(data.bytes, offset, length);
+                }
+                offset = offsets[slot];
+                length = lengths[slot];
+            }
+        }
+        if (length > 0) {
+            out.write(data.bytes, offset, length);
         }
         out.flush();
     }
 
     public void reset() {
         size = 0;
-        entries.clear();
+        entries = 0;
+        removed.clear();
         data.reset();
     }
 
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder(length());
-        for (Entry entry : entries) {
-            sb.append(new String(data.bytes, entry.offset, entry.length, StringUtils.UTF_8));
+        for (int slot = removed.nextClearBit(0); slot < entries; slot = removed.nextClearBit(slot + 1)) {
+            sb.append(new String(data.bytes, offsets[slot], lengths[slot], StringUtils.UTF_8));
         }
         return sb.toString();
     }
-}
\ No newline at end of file
+}
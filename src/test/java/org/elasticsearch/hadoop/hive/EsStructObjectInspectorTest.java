@@ -0,0 +1,67 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.hadoop.hive;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.Text;
+import org.elasticsearch.hadoop.mr.LinkedMapWritable;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class EsStructObjectInspectorTest {
+
+    @Test
+    public void testColumnsResolvedFromDocument() throws Exception {
+        Properties tableProperties = new Properties();
+        tableProperties.put(HiveConstants.MAPPING_NAMES, "name:full_name");
+        tableProperties.put(HiveConstants.COLUMNS, "id,name,address");
+        tableProperties.put(HiveConstants.COLUMNS_TYPES, "int:string:struct<city:string,zip:int>");
+
+        EsSerDe serde = new EsSerDe();
+        serde.initialize(new Configuration(), tableProperties);
+        StructObjectInspector inspector = (StructObjectInspector) serde.getObjectInspector();
+
+        LinkedMapWritable address = new LinkedMapWritable();
+        address.put(new Text("city"), new Text("Paris"));
+        LinkedMapWritable document = new LinkedMapWritable();
+        document.put(new Text("id"), new IntWritable(1));
+        document.put(new Text("full_name"), new Text("John"));
+        document.put(new Text("address"), address);
+
+        Object row = serde.deserialize(document);
+        assertEquals(new IntWritable(1), inspector.getStructFieldData(row, inspector.getStructFieldRef("id")));
+        assertEquals(new Text("John"), inspector.getStructFieldData(row, inspector.getStructFieldRef("name")));
+
+        // nested structs are converted on access
+        List<Object> struct = Arrays.<Object> asList(new Text("Paris"), null);
+        assertEquals(struct, inspector.getStructFieldData(row, inspector.getStructFieldRef("address")));
+        assertEquals(Arrays.<Object> asList(new IntWritable(1), new Text("John"), struct), inspector.getStructFieldsDataAsList(row));
+
+        // regular (list based) rows are still supported
+        assertEquals(new Text("John"), inspector.getStructFieldData(Arrays.asList(new IntWritable(2), new Text("John"), null),
+                inspector.getStructFieldRef("name")));
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.hadoop.hive;
+
+import org.apache.hadoop.fs.ContentSummary;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapred.JobConf;
+import org.elasticsearch.hadoop.cfg.ConfigurationOptions;
+import org.elasticsearch.hadoop.cfg.InternalConfigurationOptions;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class HiveContentSummaryTest {
+
+    @Test
+    public void testContentSummary() throws Exception {
+        JobConf job = new JobConf();
+        job.set(ConfigurationOptions.ES_RESOURCE, "foo/bar");
+        job.set(InternalConfigurationOptions.INTERNAL_ES_RESOURCE_STATS, "42,2048,foo/bar");
+
+        ContentSummary summary = new EsHiveInputFormat().getContentSummary(new Path("/tmp/foo"), job);
+        assertEquals(2048, summary.getLength());
+        // the index is seen as one file
+        assertEquals(1, summary.getFileCount());
+        assertEquals(0, summary.getDirectoryCount());
+    }
+}
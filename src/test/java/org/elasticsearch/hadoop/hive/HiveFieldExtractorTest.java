@@ -0,0 +1,93 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.hadoop.hive;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.Text;
+import org.elasticsearch.hadoop.cfg.ConfigurationOptions;
+import org.elasticsearch.hadoop.cfg.Settings;
+import org.elasticsearch.hadoop.serialization.field.ConstantFieldExtractor;
+import org.elasticsearch.hadoop.util.BytesArray;
+import org.elasticsearch.hadoop.util.TestSettings;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class HiveFieldExtractorTest {
+
+    private HiveFieldExtractor extractor(String field) {
+        Settings settings = new TestSettings();
+        settings.setProperty(HiveConstants.COLUMNS, "id,counter");
+        settings.setProperty(ConfigurationOptions.ES_MAPPING_ID, field);
+        settings.setProperty(ConstantFieldExtractor.PROPERTY, ConfigurationOptions.ES_MAPPING_ID);
+        HiveFieldExtractor extractor = new HiveFieldExtractor();
+        extractor.setSettings(settings);
+        return extractor;
+    }
+
+    private ObjectInspector inspector() {
+        List<String> names = Arrays.asList("_col0", "_col1");
+        List<ObjectInspector> inspectors = Arrays.<ObjectInspector> asList(
+                PrimitiveObjectInspectorFactory.writableStringObjectInspector,
+                PrimitiveObjectInspectorFactory.writableIntObjectInspector);
+        return ObjectInspectorFactory.getStandardStructObjectInspector(names, inspectors);
+    }
+
+    @Test
+    public void testStringFieldAsBytes() throws Exception {
+        HiveFieldExtractor extractor = extractor("id");
+        ObjectInspector inspector = inspector();
+        BytesArray pad = new BytesArray(4);
+
+        assertTrue(extractor.field(new HiveType(Arrays.asList(new Text("\u00E9\u00E9n"), new IntWritable(1)), inspector), pad));
+        assertEquals("\u00E9\u00E9n", pad.toString());
+        // same inspector, different row
+        assertTrue(extractor.field(new HiveType(Arrays.asList(new Text("2"), new IntWritable(2)), inspector), pad));
+        assertEquals("2", pad.toString());
+        assertEquals("2", extractor.field(new HiveType(Arrays.asList(new Text("2"), new IntWritable(2)), inspector)));
+        // nulls are extracted as empty
+        assertTrue(extractor.field(new HiveType(Arrays.asList(null, new IntWritable(3)), inspector), pad));
+        assertEquals(0, pad.length());
+    }
+
+    @Test
+    public void testNonStringFieldAsBytes() throws Exception {
+        HiveFieldExtractor extractor = extractor("counter");
+        BytesArray pad = new BytesArray(4);
+
+        assertTrue(extractor.field(new HiveType(Arrays.asList(new Text("1"), new IntWritable(12345)), inspector()), pad));
+        assertEquals("12345", pad.toString());
+        assertFalse(extractor.field("not a hive type", pad));
+    }
+
+    @Test
+    public void testConstantAsBytes() throws Exception {
+        HiveFieldExtractor extractor = extractor("<const>");
+        BytesArray pad = new BytesArray(4);
+
+        assertTrue(extractor.field(new HiveType(Arrays.asList(new Text("1"), new IntWritable(1)), inspector()), pad));
+        assertEquals("const", pad.toString());
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.hadoop.hive;
+
+import java.util.Arrays;
+
+import org.apache.hadoop.hive.ql.metadata.HiveStoragePredicateHandler.DecomposedPredicate;
+import org.apache.hadoop.hive.ql.plan.ExprNodeColumnDesc;
+import org.apache.hadoop.hive.ql.plan.ExprNodeConstantDesc;
+import org.apache.hadoop.hive.ql.plan.ExprNodeDesc;
+import org.apache.hadoop.hive.ql.plan.ExprNodeGenericFuncDesc;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFIn;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPAnd;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPEqual;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPGreaterThan;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPLessThan;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPNull;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPOr;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFUpper;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
+import org.elasticsearch.hadoop.util.FieldAlias;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class HiveFiltersTest {
+
+    private static final ExprNodeDesc AGE = new ExprNodeColumnDesc(TypeInfoFactory.intTypeInfo, "age", "t", false);
+    private static final ExprNodeDesc PRICE = new ExprNodeColumnDesc(TypeInfoFactory.floatTypeInfo, "price", "t", false);
+    private static final ExprNodeDesc RATE = new ExprNodeColumnDesc(TypeInfoFactory.doubleTypeInfo, "rate", "t", false);
+    private static final ExprNodeDesc NAME = new ExprNodeColumnDesc(TypeInfoFactory.stringTypeInfo, "name", "t", false);
+
+    private static ExprNodeDesc func(GenericUDF udf, ExprNodeDesc... args) {
+        return new ExprNodeGenericFuncDesc(TypeInfoFactory.booleanTypeInfo, udf, Arrays.asList(args));
+    }
+
+    private static ExprNodeDesc constant(Object value) {
+        return new ExprNodeConstantDesc(value);
+    }
+
+    @Test
+    public void testExactPredicatesArePushedEntirely() throws Exception {
+        ExprNodeDesc predicate = func(new GenericUDFOPAnd(),
+                func(new GenericUDFOPLessThan(), constant(18), AGE),
+                func(new GenericUDFOPOr(), func(new GenericUDFIn(), AGE, constant(20), constant(30)), func(new GenericUDFOPNull(), AGE)));
+
+        DecomposedPredicate decomposed = HiveFilters.decompose(predicate);
+        assertNotNull(decomposed.pushedPredicate);
+        assertNull(decomposed.residualPredicate);
+        assertEquals("{\"and\":[{\"range\":{\"age\":{\"gt\":18}}},{\"or\":[{\"terms\":{\"age\":[20,30]}},{\"missing\":{\"field\":\"age\"}}]}]}",
+                HiveFilters.toFilter(decomposed.pushedPredicate, new FieldAlias()));
+    }
+
+    @Test
+    public void testApproximateAndUnsupportedPredicatesAreResidual() throws Exception {
+        ExprNodeDesc equals = func(new GenericUDFOPEqual(), NAME, constant("John Smith"));
+        ExprNodeDesc upper = func(new GenericUDFOPEqual(), new ExprNodeGenericFuncDesc(TypeInfoFactory.stringTypeInfo, new GenericUDFUpper(),
+                Arrays.<ExprNodeDesc> asList(NAME)), constant("JOHN"));
+        ExprNodeDesc predicate = func(new GenericUDFOPAnd(), equals, upper);
+
+        DecomposedPredicate decomposed = HiveFilters.decompose(predicate);
+        assertEquals(equals.getExprString(), decomposed.pushedPredicate.getExprString());
+        // string matching is approximated so the predicate is evaluated by Hive as well
+        assertEquals(predicate.getExprString(), decomposed.residualPredicate.getExprString());
+        assertEquals("{\"query\":{\"match\":{\"name\":{\"query\":\"John Smith\",\"operator\":\"and\",\"zero_terms_query\":\"all\"}}}}",
+                HiveFilters.toFilter(decomposed.pushedPredicate, new FieldAlias()));
+    }
+
+    @Test
+    public void testNothingToPushDown() throws Exception {
+        assertNull(HiveFilters.decompose(func(new GenericUDFOPLessThan(), NAME, constant("m"))));
+    }
+
+    @Test
+    public void testMixedTypeComparisonsAreNotPushed() throws Exception {
+        // ES would truncate the bound on an integer field
+        assertNull(HiveFilters.decompose(func(new GenericUDFOPLessThan(), AGE, constant(17.5d))));
+        assertNull(HiveFilters.decompose(func(new GenericUDFOPEqual(), AGE, constant(17.5d))));
+        assertNull(HiveFilters.decompose(func(new GenericUDFIn(), AGE, constant(20), constant(20.5d))));
+        assertNull(HiveFilters.decompose(func(new GenericUDFOPEqual(), AGE, constant(Long.MAX_VALUE))));
+        assertNull(HiveFilters.decompose(func(new GenericUDFOPEqual(), AGE, constant("20"))));
+        // float columns are never compared against doubles
+        assertNull(HiveFilters.decompose(func(new GenericUDFOPGreaterThan(), PRICE, constant(0.1d))));
+        assertNull(HiveFilters.decompose(func(new GenericUDFOPGreaterThan(), PRICE, constant(1 << 25))));
+    }
+
+    @Test
+    public void testLosslessConstantsArePushed() throws Exception {
+        assertEquals("{\"range\":{\"age\":{\"lt\":17}}}",
+                HiveFilters.toFilter(HiveFilters.decompose(func(new GenericUDFOPLessThan(), AGE, constant(17L))).pushedPredicate, new FieldAlias()));
+        assertEquals("{\"range\":{\"price\":{\"gt\":0.1}}}",
+                HiveFilters.toFilter(HiveFilters.decompose(func(new GenericUDFOPGreaterThan(), PRICE, constant(0.1f))).pushedPredicate, new FieldAlias()));
+        assertEquals("{\"range\":{\"price\":{\"gt\":1}}}",
+                HiveFilters.toFilter(HiveFilters.decompose(func(new GenericUDFOPGreaterThan(), PRICE, constant(1))).pushedPredicate, new FieldAlias()));
+        // float constants are widened as Hive does
+        assertEquals("{\"range\":{\"rate\":{\"gt\":" + ((double) 0.1f) + "}}}",
+                HiveFilters.toFilter(HiveFilters.decompose(func(new GenericUDFOPGreaterThan(), RATE, constant(0.1f))).pushedPredicate, new FieldAlias()));
+    }
+
+    @Test
+    public void testEmptyStringMatchesAllDocuments() throws Exception {
+        ExprNodeDesc equals = func(new GenericUDFOPEqual(), NAME, constant(""));
+        DecomposedPredicate decomposed = HiveFilters.decompose(equals);
+        // an empty string is analyzed to no terms - ES needs to return all documents so Hive can decide
+        assertEquals("{\"query\":{\"match\":{\"name\":{\"query\":\"\",\"operator\":\"and\",\"zero_terms_query\":\"all\"}}}}",
+                HiveFilters.toFilter(decomposed.pushedPredicate, new FieldAlias()));
+        assertEquals(equals.getExprString(), decomposed.residualPredicate.getExprString());
+    }
+}
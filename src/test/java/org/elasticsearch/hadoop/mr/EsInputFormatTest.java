@@ -0,0 +1,248 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.hadoop.mr;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.MapWritable;
+import org.apache.hadoop.mapred.InputSplit;
+import org.apache.hadoop.mapred.JobConf;
+import org.elasticsearch.hadoop.cfg.ConfigurationOptions;
+import org.elasticsearch.hadoop.mr.EsInputFormat.ShardInputSplit;
+import org.elasticsearch.hadoop.util.StringUtils;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class EsInputFormatTest {
+
+    // single node cluster hosting index [foo] with one (primary) shard per entry of [docs]; each doc takes 10 bytes
+    private static class ClusterNode extends StubNode {
+        private final long[] docs;
+
+        ClusterNode(long... docs) {
+            super("n1");
+            this.docs = docs;
+        }
+
+        @Override
+        String respond(String uri, String body) {
+            if (uri.contains("_nodes")) {
+                return "{\"nodes\":{\"n1\":{\"name\":\"node-n1\",\"http_address\":\"inet[/127.0.0.1:" + port() + "]\"}}}";
+            }
+            if (uri.contains("_search_shards")) {
+                StringBuilder shards = new StringBuilder();
+                for (int i = 0; i < docs.length; i++) {
+                    if (i > 0) {
+                        shards.append(",");
+                    }
+                    shards.append("[{\"state\":\"STARTED\",\"primary\":true,\"node\":\"n1\",\"shard\":").append(i).append(",\"index\":\"foo\"}]");
+                }
+                return "{\"shards\":[" + shards + "]}";
+            }
+            if (uri.contains("_stats")) {
+                StringBuilder shards = new StringBuilder();
+                long total = 0;
+                for (int i = 0; i < docs.length; i++) {
+                    if (i > 0) {
+                        shards.append(",");
+                    }
+                    shards.append("\"").append(i).append("\":[{\"routing\":{\"state\":\"STARTED\",\"primary\":true,\"node\":\"n1\"},")
+                            .append("\"docs\":{\"count\":").append(docs[i]).append("},\"store\":{\"size_in_bytes\":").append(docs[i] * 10).append("}}]");
+                    total += docs[i];
+                }
+                return "{\"indices\":{\"foo\":{\"primaries\":{\"docs\":{\"count\":" + total + "},\"store\":{\"size_in_bytes\":" + total * 10
+                        + "}},\"shards\":{" + shards + "}}}}";
+            }
+            if (uri.contains("_mapping")) {
+                return "{\"bar\":{\"properties\":{\"n\":{\"type\":\"long\"}}}}";
+            }
+            if (uri.contains("search_type=count")) {
+                return "{\"hits\":{\"total\":1,\"hits\":[]}}";
+            }
+            return "{}";
+        }
+    }
+
+    private StubNode node;
+
+    @After
+    public void stop() {
+        if (node != null) {
+            node.stop();
+        }
+    }
+
+    private ShardInputSplit[] splits(StubNode node, String... props) throws Exception {
+        this.node = node.start();
+
+        JobConf cfg = new JobConf();
+        cfg.set(ConfigurationOptions.ES_NODES, "127.0.0.1");
+        cfg.set(ConfigurationOptions.ES_PORT, String.valueOf(node.port()));
+        cfg.set(ConfigurationOptions.ES_NODES_DISCOVERY, "false");
+        cfg.set(ConfigurationOptions.ES_RESOURCE, "foo/bar");
+        for (int i = 0; i < props.length; i += 2) {
+            cfg.set(props[i], props[i + 1]);
+        }
+
+        InputSplit[] splits = new EsInputFormat<Text, MapWritable>().getSplits(cfg, 1);
+        return Arrays.copyOf(splits, splits.length, ShardInputSplit[].class);
+    }
+
+    private static ShardInputSplit find(ShardInputSplit[] splits, String shards) {
+        for (ShardInputSplit split : splits) {
+            if (split.toString().contains("shard=" + shards + ",")) {
+                return split;
+            }
+        }
+        fail("no split for " + shards + " in " + Arrays.toString(splits));
+        return null;
+    }
+
+    private static byte[] write(ShardInputSplit split) throws Exception {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bos);
+        split.write(out);
+        out.flush();
+        return bos.toByteArray();
+    }
+
+    private static ShardInputSplit read(byte[] bytes) throws Exception {
+        ShardInputSplit split = new ShardInputSplit();
+        split.readFields(new DataInputStream(new ByteArrayInputStream(bytes)));
+        return split;
+    }
+
+    @Test
+    public void testSplitRoundTrip() throws Exception {
+        StubNode replica = new ClusterNode().start();
+        try {
+            ShardInputSplit split = new ShardInputSplit("127.0.0.1", 9200, "n1", "node-n1", "hash", "{mapping}".getBytes(StringUtils.UTF_8));
+            split.addShard("foo", 0, null, 10, 100, Collections.singletonList(replica.node()));
+            split.addShard("bar", 3, "{\"script\":{}}", 20, 200, Collections.singletonList(replica.node()));
+
+            byte[] bytes = write(split);
+            ShardInputSplit copy = read(bytes);
+
+            assertArrayEquals(bytes, write(copy));
+            assertEquals(split.toString(), copy.toString());
+            assertEquals(300, copy.getLength());
+            assertArrayEquals(new String[] { "127.0.0.1" }, copy.getLocations());
+            assertTrue(copy.toString(), copy.toString().contains("shard=[foo/0, bar/3,filter={\"script\":{}}]"));
+            assertTrue(copy.toString(), copy.toString().contains("replicas=[n1|127.0.0.1:" + replica.port() + "]"));
+        } finally {
+            replica.stop();
+        }
+    }
+
+    @Test
+    public void testSplitRoundTripWithoutMapping() throws Exception {
+        ShardInputSplit split = new ShardInputSplit("127.0.0.1", 9200, "n1", "node-n1", 2, null, null);
+        byte[] bytes = write(split);
+        ShardInputSplit copy = read(bytes);
+
+        assertArrayEquals(bytes, write(copy));
+        assertEquals(split.toString(), copy.toString());
+        // no stats - the length falls back to the minimum
+        assertEquals(1, copy.getLength());
+    }
+
+    @Test
+    public void testOneSplitPerShardByDefault() throws Exception {
+        ShardInputSplit[] splits = splits(new ClusterNode(10, 20, 35, 100));
+        assertEquals(4, splits.length);
+        assertEquals(100, find(splits, "foo/0").getLength());
+        assertEquals(1000, find(splits, "foo/3").getLength());
+    }
+
+    @Test
+    public void testCombineSmallShards() throws Exception {
+        ShardInputSplit[] splits = splits(new ClusterNode(10, 20, 35, 100),
+                ConfigurationOptions.ES_INPUT_SPLIT_DOCS, "50", ConfigurationOptions.ES_INPUT_SPLIT_COMBINE, "true");
+
+        // 10 + 20 fit into one split, 35 more would exceed the threshold, 100 is partitioned in two
+        assertEquals(Arrays.toString(splits), 4, splits.length);
+        assertEquals(300, find(splits, "[foo/0, foo/1]").getLength());
+        assertEquals(350, find(splits, "foo/2").getLength());
+        int partitions = 0;
+        for (ShardInputSplit split : splits) {
+            if (split.toString().contains("shard=foo/3,filter=")) {
+                assertEquals(500, split.getLength());
+                partitions++;
+            }
+        }
+        assertEquals(2, partitions);
+    }
+
+    @Test
+    public void testCombineFillsUpToThreshold() throws Exception {
+        // exactly reaching the threshold still fits
+        ShardInputSplit[] splits = splits(new ClusterNode(25, 25, 10),
+                ConfigurationOptions.ES_INPUT_SPLIT_DOCS, "50", ConfigurationOptions.ES_INPUT_SPLIT_COMBINE, "true");
+
+        assertEquals(Arrays.toString(splits), 2, splits.length);
+        assertEquals(500, find(splits, "[foo/0, foo/1]").getLength());
+        assertEquals(100, find(splits, "foo/2").getLength());
+    }
+
+    @Test
+    public void testNoCombineWithoutSplitDocs() throws Exception {
+        ShardInputSplit[] splits = splits(new ClusterNode(10, 20, 35), ConfigurationOptions.ES_INPUT_SPLIT_COMBINE, "true");
+        assertEquals(3, splits.length);
+    }
+
+    private static long[] lengths(ShardInputSplit[] splits) {
+        long[] lengths = new long[splits.length];
+        for (int i = 0; i < splits.length; i++) {
+            lengths[i] = splits[i].getLength();
+        }
+        return lengths;
+    }
+
+    @Test
+    public void testLargestSplitsFirst() throws Exception {
+        ShardInputSplit[] splits = splits(new ClusterNode(10, 300, 20, 45));
+        assertArrayEquals(new long[] { 3000, 450, 200, 100 }, lengths(splits));
+        assertTrue(splits[0].toString(), splits[0].toString().contains("shard=foo/1,"));
+    }
+
+    @Test
+    public void testLargestSplitsFirstWhenCombining() throws Exception {
+        // the combined splits are created before the partitions but scheduled after them
+        ShardInputSplit[] splits = splits(new ClusterNode(10, 20, 35, 100),
+                ConfigurationOptions.ES_INPUT_SPLIT_DOCS, "50", ConfigurationOptions.ES_INPUT_SPLIT_COMBINE, "true");
+        assertArrayEquals(new long[] { 500, 500, 350, 300 }, lengths(splits));
+    }
+
+    @Test
+    public void testLengthFallsBackToDocs() throws Exception {
+        ShardInputSplit split = new ShardInputSplit("127.0.0.1", 9200, "n1", "node-n1", null, null);
+        split.addShard("foo", 0, null, 42, 0);
+        assertEquals(42, split.getLength());
+        split.addShard("foo", 1, null, 8, 0);
+        assertEquals(50, split.getLength());
+    }
+}
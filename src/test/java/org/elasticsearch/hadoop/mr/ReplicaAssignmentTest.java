@@ -0,0 +1,111 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.hadoop.mr;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.elasticsearch.hadoop.rest.dto.Node;
+import org.elasticsearch.hadoop.rest.dto.Shard;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ReplicaAssignmentTest {
+
+    private static Node node(String id) {
+        Map<String, Object> data = new LinkedHashMap<String, Object>();
+        data.put("name", "node-" + id);
+        data.put("http_address", "inet[/127.0.0.1:9200]");
+        return new Node(id, data);
+    }
+
+    private static Shard shard(int id, String node, boolean primary) {
+        Map<String, Object> data = new LinkedHashMap<String, Object>();
+        data.put("state", "STARTED");
+        data.put("shard", id);
+        data.put("index", "foo");
+        data.put("node", node);
+        data.put("primary", primary);
+        return new Shard(data);
+    }
+
+    private static Map<Shard, Node> copies(int id, String... nodes) {
+        Map<Shard, Node> copies = new LinkedHashMap<Shard, Node>();
+        for (int i = 0; i < nodes.length; i++) {
+            copies.put(shard(id, nodes[i], i == 0), node(nodes[i]));
+        }
+        return copies;
+    }
+
+    @Test
+    public void testAddLoad() {
+        Map<String, Integer> load = new HashMap<String, Integer>();
+        EsInputFormat.addLoad(load, node("n1"));
+        EsInputFormat.addLoad(load, node("n1"));
+        EsInputFormat.addLoad(load, node("n2"));
+        assertEquals(Integer.valueOf(2), load.get("n1"));
+        assertEquals(Integer.valueOf(1), load.get("n2"));
+        assertNull(load.get("n3"));
+    }
+
+    @Test
+    public void testLeastLoadedPrefersIdleNodes() {
+        Map<String, Integer> load = new HashMap<String, Integer>();
+        load.put("n1", 2);
+        load.put("n2", 1);
+
+        Map<Shard, Node> copies = copies(0, "n1", "n2", "n3");
+        assertEquals("n3", EsInputFormat.leastLoaded(copies, load).getNode());
+
+        load.put("n3", 3);
+        assertEquals("n2", EsInputFormat.leastLoaded(copies, load).getNode());
+    }
+
+    @Test
+    public void testLeastLoadedTiesPickFirstCopy() {
+        Map<Shard, Node> copies = copies(0, "n1", "n2");
+        assertEquals("n1", EsInputFormat.leastLoaded(copies, Collections.<String, Integer> emptyMap()).getNode());
+    }
+
+    @Test
+    public void testCopiesSpreadAcrossNodes() {
+        Map<String, Integer> load = new HashMap<String, Integer>();
+        // 4 shards with one replica each on 2 nodes - every node should get 2 splits
+        for (int i = 0; i < 4; i++) {
+            Map<Shard, Node> copies = (i % 2 == 0 ? copies(i, "n1", "n2") : copies(i, "n2", "n1"));
+            Shard shard = EsInputFormat.leastLoaded(copies, load);
+            EsInputFormat.addLoad(load, copies.get(shard));
+        }
+        assertEquals(Integer.valueOf(2), load.get("n1"));
+        assertEquals(Integer.valueOf(2), load.get("n2"));
+    }
+
+    @Test
+    public void testReplicaNodesExcludeSelected() {
+        Map<Shard, Node> copies = copies(0, "n1", "n2", "n3");
+        Shard selected = shard(0, "n2", false);
+        assertEquals(2, EsInputFormat.replicaNodes(copies, selected).size());
+        assertEquals("n1", EsInputFormat.replicaNodes(copies, selected).get(0).getId());
+        assertEquals("n3", EsInputFormat.replicaNodes(copies, selected).get(1).getId());
+        assertTrue(EsInputFormat.replicaNodes(copies(1, "n1"), shard(1, "n1", true)).isEmpty());
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.hadoop.mr;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.Reporter;
+import org.elasticsearch.hadoop.cfg.ConfigurationOptions;
+import org.elasticsearch.hadoop.cfg.InternalConfigurationOptions;
+import org.elasticsearch.hadoop.mr.EsInputFormat.ShardInputSplit;
+import org.elasticsearch.hadoop.mr.EsInputFormat.WritableShardRecordReader;
+import org.elasticsearch.hadoop.rest.dto.Node;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ShardRecordReaderTest {
+
+    // serves a scan of [total] docs, [page] docs at a time - requests for the [failOn] uri fragment or scroll id fail
+    private static class ScrollNode extends StubNode {
+        private final int total;
+        private final int page;
+        private final String failOn;
+
+        ScrollNode(String id, int total, int page, String failOn) {
+            super(id);
+            this.total = total;
+            this.page = page;
+            this.failOn = failOn;
+        }
+
+        @Override
+        String respond(String uri, String body) {
+            if (failOn != null && (uri.contains(failOn) || body.equals(failOn))) {
+                return null;
+            }
+            if (uri.contains("search_type=count")) {
+                return "{\"hits\":{\"total\":" + total + ",\"hits\":[]}}";
+            }
+            if (uri.contains("search_type=scan")) {
+                return "{\"_scroll_id\":\"s0\",\"hits\":{\"total\":" + total + ",\"hits\":[]}}";
+            }
+            if (uri.contains("_search/scroll")) {
+                int current = Integer.parseInt(body.substring(1));
+                StringBuilder hits = new StringBuilder();
+                for (int i = current * page; i < Math.min(total, (current + 1) * page); i++) {
+                    if (hits.length() > 0) {
+                        hits.append(",");
+                    }
+                    hits.append("{\"_id\":\"").append(i).append("\",\"_source\":{\"n\":").append(i).append("}}");
+                }
+                return "{\"_scroll_id\":\"s" + (current + 1) + "\",\"hits\":{\"total\":" + total + ",\"hits\":[" + hits + "]}}";
+            }
+            return "{}";
+        }
+    }
+
+    private final List<StubNode> nodes = new ArrayList<StubNode>();
+
+    @After
+    public void stop() {
+        for (StubNode node : nodes) {
+            node.stop();
+        }
+    }
+
+    private StubNode start(StubNode node) throws Exception {
+        nodes.add(node.start());
+        return node;
+    }
+
+    private static List<String> read(ShardInputSplit split, StubNode node, String... props) throws Exception {
+        JobConf cfg = new JobConf();
+        cfg.set(ConfigurationOptions.ES_NODES, "127.0.0.1");
+        cfg.set(ConfigurationOptions.ES_PORT, String.valueOf(node.port()));
+        cfg.set(ConfigurationOptions.ES_RESOURCE, "foo/bar");
+        for (int i = 0; i < props.length; i += 2) {
+            cfg.set(props[i], props[i + 1]);
+        }
+
+        WritableShardRecordReader reader = new WritableShardRecordReader(split, cfg, Reporter.NULL);
+        List<String> ids = new ArrayList<String>();
+        try {
+            Text key = reader.createKey();
+            Map<Writable, Writable> value = reader.createValue();
+            while (reader.next(key, value)) {
+                ids.add(key.toString());
+                // count mode returns empty entries
+                assertEquals(key.getLength() == 0, value.isEmpty());
+                assertTrue(reader.getProgress() > 0 && reader.getProgress() <= 1);
+            }
+            assertEquals(ids.size(), reader.getPos());
+        } finally {
+            reader.close();
+        }
+        return ids;
+    }
+
+    private static ShardInputSplit split(StubNode node, StubNode... replicas) {
+        ShardInputSplit split = new ShardInputSplit("127.0.0.1", node.port(), node.id(), "node-" + node.id(), null, null);
+        List<Node> replicaNodes = new ArrayList<Node>();
+        for (StubNode replica : replicas) {
+            replicaNodes.add(replica.node());
+        }
+        split.addShard("foo", 0, null, 0, 0, replicaNodes);
+        return split;
+    }
+
+    private static List<String> ids(int count) {
+        List<String> ids = new ArrayList<String>();
+        for (int i = 0; i < count; i++) {
+            ids.add(String.valueOf(i));
+        }
+        return ids;
+    }
+
+    @Test
+    public void testReadFromSplitNode() throws Exception {
+        StubNode node = start(new ScrollNode("n1", 5, 2, null));
+        StubNode replica = start(new ScrollNode("n2", 5, 2, null));
+
+        assertEquals(ids(5), read(split(node, replica), node));
+        assertEquals(1, node.count("_only_node:n1"));
+        assertTrue(replica.requests.isEmpty());
+    }
+
+    @Test
+    public void testFailOverWhenScanFails() throws Exception {
+        StubNode node = start(new ScrollNode("n1", 5, 2, "search_type=scan"));
+        StubNode replica = start(new ScrollNode("n2", 5, 2, null));
+
+        assertEquals(ids(5), read(split(node, replica), node));
+        assertEquals(1, replica.count("_only_node:n2"));
+    }
+
+    @Test
+    public void testFailOverWhenFirstPageFails() throws Exception {
+        StubNode node = start(new ScrollNode("n1", 5, 2, "s0"));
+        StubNode replica = start(new ScrollNode("n2", 5, 2, null));
+
+        assertEquals(ids(5), read(split(node, replica), node));
+        assertEquals(1, replica.count("_only_node:n2"));
+    }
+
+    @Test
+    public void testFailOverToLastReplica() throws Exception {
+        StubNode node = start(new ScrollNode("n1", 3, 2, "search_type=scan"));
+        StubNode first = start(new ScrollNode("n2", 3, 2, "search_type=scan"));
+        StubNode second = start(new ScrollNode("n3", 3, 2, null));
+
+        assertEquals(ids(3), read(split(node, first, second), node));
+        assertEquals(1, first.count("_only_node:n2"));
+        assertEquals(1, second.count("_only_node:n3"));
+    }
+
+    @Test
+    public void testNoReplicaLeft() throws Exception {
+        StubNode node = start(new ScrollNode("n1", 3, 2, "search_type=scan"));
+        StubNode replica = start(new ScrollNode("n2", 3, 2, "search_type=scan"));
+
+        try {
+            read(split(node, replica), node);
+            fail("expected the read to fail once all copies failed");
+        } catch (RuntimeException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testNoFailOverMidScroll() throws Exception {
+        // the second page fails after two docs have been read - retrying them on the replica would return them twice
+        StubNode node = start(new ScrollNode("n1", 5, 2, "s1"));
+        StubNode replica = start(new ScrollNode("n2", 5, 2, null));
+
+        try {
+            read(split(node, replica), node);
+            fail("expected the read to fail");
+        } catch (RuntimeException ex) {
+            // expected
+        }
+        assertTrue(replica.requests.isEmpty());
+    }
+
+    @Test
+    public void testFailOverWhenPrefetchedPageFails() throws Exception {
+        StubNode node = start(new ScrollNode("n1", 5, 2, "s0"));
+        StubNode replica = start(new ScrollNode("n2", 5, 2, null));
+
+        assertEquals(ids(5), read(split(node, replica), node, ConfigurationOptions.ES_SCROLL_PREFETCH, "2"));
+        assertEquals(1, replica.count("_only_node:n2"));
+    }
+
+    @Test
+    public void testNoFailOverMidPrefetchedScroll() throws Exception {
+        StubNode node = start(new ScrollNode("n1", 5, 2, "s1"));
+        StubNode replica = start(new ScrollNode("n2", 5, 2, null));
+
+        try {
+            read(split(node, replica), node, ConfigurationOptions.ES_SCROLL_PREFETCH, "2");
+            fail("expected the read to fail");
+        } catch (IllegalStateException ex) {
+            // the node error, as reported by the scroll request
+            assertTrue(ex.getMessage(), ex.getMessage().contains("stub failure"));
+        }
+        assertTrue(replica.requests.isEmpty());
+    }
+
+    @Test
+    public void testCountOnlyReturnsEmptyEntries() throws Exception {
+        StubNode node = start(new ScrollNode("n1", 5, 2, null));
+        ShardInputSplit split = split(node);
+        split.addShard("foo", 1, null, 0, 0);
+
+        // one empty entry per matching doc in each shard of the split
+        List<String> ids = read(split, node, InternalConfigurationOptions.INTERNAL_ES_QUERY_COUNT, "true");
+        assertEquals(Collections.nCopies(10, ""), ids);
+        assertEquals(2, node.count("search_type=count"));
+        assertEquals(0, node.count("search_type=scan"));
+        assertEquals(0, node.count("_search/scroll"));
+    }
+
+    @Test
+    public void testCountOnlyEmptyShard() throws Exception {
+        StubNode node = start(new ScrollNode("n1", 0, 2, null));
+        assertTrue(read(split(node), node, InternalConfigurationOptions.INTERNAL_ES_QUERY_COUNT, "true").isEmpty());
+    }
+
+    @Test
+    public void testCountOnlyFailsOver() throws Exception {
+        StubNode node = start(new ScrollNode("n1", 3, 2, "search_type=count"));
+        StubNode replica = start(new ScrollNode("n2", 3, 2, null));
+
+        assertEquals(Collections.nCopies(3, ""), read(split(node, replica), node, InternalConfigurationOptions.INTERNAL_ES_QUERY_COUNT, "true"));
+        assertEquals(1, replica.count("_only_node:n2"));
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.hadoop.mr;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+import org.elasticsearch.hadoop.rest.dto.Node;
+import org.elasticsearch.hadoop.util.StringUtils;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Bare-bones HTTP endpoint standing in for an Elasticsearch node. Each request is answered with the (JSON) response
+ * returned by {@link #respond(String, String)} and recorded for later inspection.
+ */
+abstract class StubNode implements HttpHandler {
+
+    final List<String> requests = Collections.synchronizedList(new ArrayList<String>());
+
+    private final String id;
+    private HttpServer server;
+
+    StubNode(String id) {
+        this.id = id;
+    }
+
+    StubNode start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        return this;
+    }
+
+    void stop() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+    }
+
+    String id() {
+        return id;
+    }
+
+    int port() {
+        return server.getAddress().getPort();
+    }
+
+    Node node() {
+        Map<String, Object> data = new LinkedHashMap<String, Object>();
+        data.put("name", "node-" + id);
+        data.put("http_address", "inet[/127.0.0.1:" + port() + "]");
+        return new Node(id, data);
+    }
+
+    /**
+     * Returns the response to the given request or null to fail it (with a server error).
+     *
+     * @param uri request uri (path and query)
+     * @param body request body (empty if there is none)
+     * @return response
+     */
+    abstract String respond(String uri, String body);
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        String uri = exchange.getRequestURI().toString();
+        String body = read(exchange.getRequestBody());
+        requests.add(uri);
+
+        if ("HEAD".equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+            return;
+        }
+
+        int status = 200;
+        String response = respond(uri, body);
+        if (response == null) {
+            status = 500;
+            response = "{\"error\":\"stub failure\",\"status\":500}";
+        }
+
+        byte[] bytes = response.getBytes(StringUtils.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(bytes);
+        out.close();
+    }
+
+    int count(String fragment) {
+        int count = 0;
+        synchronized (requests) {
+            for (String request : requests) {
+                if (request.contains(fragment)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static String read(InputStream in) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        for (int read = in.read(buffer); read > 0; read = in.read(buffer)) {
+            bos.write(buffer, 0, read);
+        }
+        return new String(bos.toByteArray(), StringUtils.UTF_8);
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.hadoop.pig;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.pig.Expression;
+import org.apache.pig.Expression.BinaryExpression;
+import org.apache.pig.Expression.Column;
+import org.apache.pig.Expression.Const;
+import org.apache.pig.Expression.OpType;
+import org.apache.pig.data.DataByteArray;
+import org.elasticsearch.hadoop.util.FieldAlias;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PigFiltersTest {
+
+    private static Expression op(OpType type, Expression lhs, Expression rhs) {
+        return new BinaryExpression(lhs, rhs, type);
+    }
+
+    private static Map<String, Object> doc(String name, Object age) {
+        Map<String, Object> doc = new LinkedHashMap<String, Object>();
+        doc.put("name", name);
+        doc.put("age", age);
+        return doc;
+    }
+
+    private static List<Object> roundTrip(Expression expression) {
+        return PigFilters.deserialize(PigFilters.serialize(PigFilters.toTree(expression, new FieldAlias())));
+    }
+
+    @Test
+    public void testTranslation() throws Exception {
+        // 18 < Age and (name == 'John Smith' or age != 30)
+        Expression expression = op(OpType.OP_AND, op(OpType.OP_LT, new Const(18), new Column("Age")),
+                op(OpType.OP_OR, op(OpType.OP_EQ, new Column("name"), new Const("John Smith")), op(OpType.OP_NE, new Column("age"), new Const(30L))));
+
+        List<Object> tree = roundTrip(expression);
+        assertEquals("[age, name]", PigFilters.fields(tree).toString());
+        assertEquals("{\"and\":[{\"range\":{\"age\":{\"gt\":18}}},{\"or\":[{\"query\":{\"match\":{\"name\":{\"query\":\"John Smith\",\"operator\":\"and\",\"zero_terms_query\":\"all\"}}}},"
+                + "{\"not\":{\"term\":{\"age\":30}}}]}]}", PigFilters.toFilter(tree));
+    }
+
+    @Test
+    public void testUntranslatableExpressions() throws Exception {
+        Expression regex = op(OpType.OP_MATCH, new Column("name"), new Const("J.*"));
+        Expression range = op(OpType.OP_GE, new Column("age"), new Const(21));
+
+        // conjunctions keep the translatable side, disjunctions are dropped entirely
+        assertEquals("{\"range\":{\"age\":{\"gte\":21}}}", PigFilters.toFilter(roundTrip(op(OpType.OP_AND, regex, range))));
+        assertNull(PigFilters.toFilter(roundTrip(op(OpType.OP_OR, regex, range))));
+        assertNull(PigFilters.toFilter(roundTrip(op(OpType.OP_GT, new Column("name"), new Const("m")))));
+    }
+
+    @Test
+    public void testEvaluation() throws Exception {
+        Expression expression = op(OpType.OP_AND, op(OpType.OP_MATCH, new Column("name"), new Const("J.*")),
+                op(OpType.OP_LE, op(OpType.OP_PLUS, new Column("age"), new Const(1)), new Const(2.5f)));
+        List<Object> tree = roundTrip(expression);
+
+        assertTrue(PigFilters.matches(tree, doc("John", Integer.valueOf(1))));
+        assertFalse(PigFilters.matches(tree, doc("John", Long.valueOf(2))));
+        // analyzed (superset) matches are discarded
+        assertFalse(PigFilters.matches(tree, doc("Mr John", Integer.valueOf(1))));
+        // comparisons against null are not true
+        assertFalse(PigFilters.matches(tree, doc("John", null)));
+        assertFalse(PigFilters.matches(tree, Collections.emptyMap()));
+
+        List<Object> floats = roundTrip(op(OpType.OP_EQ, new Column("age"), new Const(0.1f)));
+        assertTrue(PigFilters.matches(floats, doc("John", Float.valueOf(0.1f))));
+    }
+
+    @Test
+    public void testBigNumberAndByteArrayConstants() throws Exception {
+        List<Object> decimal = roundTrip(op(OpType.OP_LT, new Column("age"), new Const(new BigDecimal("17.5"))));
+        // evaluated only by the loader
+        assertNull(PigFilters.toFilter(decimal));
+        assertTrue(PigFilters.matches(decimal, doc("John", Long.valueOf(17))));
+        assertFalse(PigFilters.matches(decimal, doc("John", Double.valueOf(17.6))));
+
+        BigInteger big = new BigInteger("123456789012345678901234567890");
+        List<Object> integer = roundTrip(op(OpType.OP_EQ, op(OpType.OP_PLUS, new Column("age"), new Const(BigInteger.ONE)), new Const(big)));
+        assertTrue(PigFilters.matches(integer, doc("John", big.subtract(BigInteger.ONE))));
+        assertFalse(PigFilters.matches(integer, doc("John", Long.valueOf(1))));
+
+        List<Object> bytes = roundTrip(op(OpType.OP_EQ, new Column("name"), new Const(new DataByteArray("John"))));
+        assertNull(PigFilters.toFilter(bytes));
+        assertTrue(PigFilters.matches(bytes, doc("John", null)));
+        assertFalse(PigFilters.matches(bytes, doc("Jane", null)));
+    }
+
+    @Test
+    public void testEmptyStringMatchesAllDocuments() throws Exception {
+        // an empty string is analyzed to no terms - ES needs to return all documents so the loader can decide
+        List<Object> tree = roundTrip(op(OpType.OP_EQ, new Column("name"), new Const("")));
+        assertEquals("{\"query\":{\"match\":{\"name\":{\"query\":\"\",\"operator\":\"and\",\"zero_terms_query\":\"all\"}}}}",
+                PigFilters.toFilter(tree));
+        assertTrue(PigFilters.matches(tree, doc("", null)));
+        assertFalse(PigFilters.matches(tree, doc("John", null)));
+    }
+}
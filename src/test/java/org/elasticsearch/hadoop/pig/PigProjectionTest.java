@@ -0,0 +1,53 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.hadoop.pig;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.pig.impl.util.Utils;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PigProjectionTest {
+
+    @Test
+    public void testNestedProjection() throws Exception {
+        String projection = PigUtils.asProjection(Utils.getSchemaFromString("name:chararray,address:(city:chararray,zip:int),links:{(url:chararray)}"), new Properties());
+        // nested tuples and bags are read as a whole (each field maps to a tuple slot)
+        assertEquals("name,address,links", projection);
+    }
+
+    @Test
+    public void testValueAtPath() throws Exception {
+        Map<String, Object> doc = new LinkedHashMap<String, Object>();
+        doc.put("name", "jane");
+        doc.put("address", Collections.singletonMap("city", "paris"));
+        doc.put("links.url", "flat");
+
+        assertEquals("jane", PigUtils.valueAt(doc, "name"));
+        assertEquals("paris", PigUtils.valueAt(doc, "address.city"));
+        assertEquals("flat", PigUtils.valueAt(doc, "links.url"));
+        assertNull(PigUtils.valueAt(doc, "address.zip"));
+        assertNull(PigUtils.valueAt(doc, "name.first"));
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.hadoop.pig;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.pig.ResourceStatistics;
+import org.elasticsearch.hadoop.cfg.InternalConfigurationOptions;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PigStatisticsTest {
+
+    private static ResourceStatistics statistics(String cached) throws Exception {
+        Configuration cfg = new Configuration();
+        cfg.set(InternalConfigurationOptions.INTERNAL_ES_RESOURCE_STATS, cached);
+        return new EsStorage().getStatistics("foo/bar", new Job(cfg));
+    }
+
+    @Test
+    public void testStatistics() throws Exception {
+        ResourceStatistics stats = statistics("42,3145728,foo/bar");
+        assertEquals(Long.valueOf(42), stats.getNumRecords());
+        assertEquals(Long.valueOf(3145728), stats.getSizeInBytes());
+    }
+
+    @Test
+    public void testSmallIndex() throws Exception {
+        assertEquals(Long.valueOf(10), statistics("1,10,foo/bar").getSizeInBytes());
+        assertEquals(Long.valueOf(0), statistics("0,0,foo/bar").getSizeInBytes());
+    }
+}
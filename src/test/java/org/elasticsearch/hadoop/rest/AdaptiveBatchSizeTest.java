@@ -0,0 +1,73 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.hadoop.rest;
+
+import org.elasticsearch.hadoop.cfg.ConfigurationOptions;
+import org.elasticsearch.hadoop.cfg.Settings;
+import org.elasticsearch.hadoop.util.TestSettings;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AdaptiveBatchSizeTest {
+
+    private AdaptiveBatchSize batchSize;
+
+    @Before
+    public void init() {
+        Settings settings = new TestSettings();
+        settings.setProperty(ConfigurationOptions.ES_BATCH_SIZE_BYTES, "4kb");
+        settings.setProperty(ConfigurationOptions.ES_BATCH_SIZE_BYTES_MIN, "1kb");
+        settings.setProperty(ConfigurationOptions.ES_BATCH_SIZE_BYTES_MAX, "6kb");
+        settings.setProperty(ConfigurationOptions.ES_BATCH_SIZE_ADAPTIVE_LATENCY, "1s");
+        batchSize = new AdaptiveBatchSize(settings);
+    }
+
+    @Test
+    public void testStartsWithBatchSize() throws Exception {
+        assertEquals(4096, batchSize.size());
+    }
+
+    @Test
+    public void testAdditiveIncreaseUpToMax() throws Exception {
+        batchSize.update(10, 0);
+        assertEquals(5120, batchSize.size());
+        batchSize.update(10, 0);
+        assertEquals(6144, batchSize.size());
+        batchSize.update(10, 0);
+        assertEquals(6144, batchSize.size());
+    }
+
+    @Test
+    public void testMultiplicativeDecreaseOnRejections() throws Exception {
+        batchSize.update(10, 5);
+        assertEquals(2048, batchSize.size());
+        batchSize.update(10, 1);
+        assertEquals(1024, batchSize.size());
+        batchSize.update(10, 1);
+        assertEquals(1024, batchSize.size());
+    }
+
+    @Test
+    public void testMultiplicativeDecreaseOnSlowRequests() throws Exception {
+        batchSize.update(1500, 0);
+        assertEquals(2048, batchSize.size());
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.hadoop.rest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.elasticsearch.hadoop.cfg.ConfigurationOptions;
+import org.elasticsearch.hadoop.cfg.Settings;
+import org.elasticsearch.hadoop.serialization.builder.JdkValueWriter;
+import org.elasticsearch.hadoop.util.BytesArray;
+import org.elasticsearch.hadoop.util.StringUtils;
+import org.elasticsearch.hadoop.util.TestSettings;
+import org.elasticsearch.hadoop.util.TrackingBytesArray;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import static org.junit.Assert.*;
+
+public class BulkPipelineTest {
+
+    // fake node answering bulk requests; documents with a "fail" field are rejected
+    private static class BulkHandler implements HttpHandler {
+        final List<String> docs = Collections.synchronizedList(new ArrayList<String>());
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            int current = inFlight.incrementAndGet();
+            try {
+                synchronized (maxInFlight) {
+                    maxInFlight.set(Math.max(maxInFlight.get(), current));
+                }
+
+                StringBuilder items = new StringBuilder();
+                if (exchange.getRequestURI().getPath().endsWith("_bulk")) {
+                    for (String line : read(exchange.getRequestBody()).split("\n")) {
+                        if (line.startsWith("{\"index\"")) {
+                            continue;
+                        }
+                        docs.add(line);
+                        if (items.length() > 0) {
+                            items.append(",");
+                        }
+                        items.append(line.contains("fail") ? "{\"index\":{\"status\":400,\"error\":\"rejected " + line.replace("\"", "'") + "\"}}" : "{\"index\":{\"status\":201}}");
+                    }
+                    // keep the request in flight for a while
+                    Thread.sleep(20);
+                }
+
+                byte[] response = ("{\"items\":[" + items + "]}").getBytes(StringUtils.UTF_8);
+                exchange.sendResponseHeaders(200, response.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(response);
+                out.close();
+            } catch (InterruptedException ex) {
+                throw new IOException(ex);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+
+        private static String read(InputStream in) throws IOException {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            for (int read = in.read(buffer); read > 0; read = in.read(buffer)) {
+                bos.write(buffer, 0, read);
+            }
+            return new String(bos.toByteArray(), StringUtils.UTF_8);
+        }
+    }
+
+    private HttpServer server;
+    private BulkHandler handler;
+
+    @Before
+    public void start() throws Exception {
+        handler = new BulkHandler();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", handler);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    @After
+    public void stop() {
+        server.stop(0);
+    }
+
+    private Settings settings(int concurrency) {
+        Settings settings = new TestSettings();
+        settings.setProperty(ConfigurationOptions.ES_NODES, "127.0.0.1");
+        settings.setProperty(ConfigurationOptions.ES_PORT, String.valueOf(server.getAddress().getPort()));
+        settings.setProperty(ConfigurationOptions.ES_RESOURCE, "foo/bar");
+        settings.setProperty(ConfigurationOptions.ES_BATCH_WRITE_CONCURRENCY, String.valueOf(concurrency));
+        settings.setProperty(ConfigurationOptions.ES_BATCH_SIZE_ENTRIES, "1");
+        settings.setProperty(ConfigurationOptions.ES_BATCH_WRITE_REFRESH, "false");
+        InitializationUtils.setValueWriterIfNotSet(settings, JdkValueWriter.class, null);
+        return settings;
+    }
+
+    private static Map<String, Object> doc(String field, int value) {
+        return Collections.<String, Object> singletonMap(field, value);
+    }
+
+    @Test
+    public void testBatchesSentInOrder() throws Exception {
+        RestRepository repository = new RestRepository(settings(1));
+        for (int i = 0; i < 10; i++) {
+            repository.writeToIndex(doc("n", i));
+        }
+        repository.close();
+
+        List<String> expected = new ArrayList<String>();
+        for (int i = 0; i < 10; i++) {
+            expected.add("{\"n\":" + i + "}");
+        }
+        assertEquals(expected, handler.docs);
+        assertEquals(1, handler.maxInFlight.get());
+    }
+
+    @Test
+    public void testBoundedBuffers() throws Exception {
+        int concurrency = 2;
+        Settings settings = settings(concurrency);
+        BulkPipeline pipeline = new BulkPipeline(settings, new Resource(settings), concurrency, null);
+        Map<TrackingBytesArray, Object> buffers = new IdentityHashMap<TrackingBytesArray, Object>();
+
+        try {
+            for (int i = 0; i < 20; i++) {
+                TrackingBytesArray data = pipeline.next();
+                buffers.put(data, Boolean.TRUE);
+                // a buffer is handed out only once it has been sent (and thus emptied)
+                assertEquals(0, data.length());
+                data.copyFrom(new BytesArray("{\"index\":{}}\n{\"n\":" + i + "}\n"));
+                pipeline.send();
+            }
+        } finally {
+            pipeline.close();
+        }
+
+        assertEquals(20, handler.docs.size());
+        assertTrue(buffers.size() <= concurrency + 1);
+        assertTrue(handler.maxInFlight.get() <= concurrency);
+    }
+
+    @Test
+    public void testFirstFailureRethrownOnClose() throws Exception {
+        RestRepository repository = new RestRepository(settings(2));
+        repository.writeToIndex(doc("n", 1));
+        repository.writeToIndex(doc("fail", 2));
+        repository.writeToIndex(doc("fail", 3));
+
+        try {
+            repository.close();
+            fail("expected the failed batch to be reported");
+        } catch (IllegalStateException ex) {
+            // failures are reported in the order the batches were sent
+            assertTrue(ex.getMessage(), ex.getMessage().contains("{'fail':2}"));
+        }
+        assertEquals(3, handler.docs.size());
+    }
+}
@@ -22,6 +22,8 @@ import java.util.Map;
 
 import org.codehaus.jackson.map.ObjectMapper;
 import org.elasticsearch.hadoop.rest.dto.mapping.Field;
+import org.elasticsearch.hadoop.rest.dto.mapping.FieldCodec;
+import org.elasticsearch.hadoop.rest.dto.mapping.FieldTrie;
 import org.elasticsearch.hadoop.serialization.FieldType;
 import org.junit.Test;
 
@@ -46,6 +48,18 @@ public class FieldTest {
         assertEquals(FieldType.STRING, secondProps[0].type());
     }
 
+    @Test
+    public void testLookupTrie() throws Exception {
+        Map value = new ObjectMapper().readValue(getClass().getResourceAsStream("nested.json"), Map.class);
+        FieldTrie trie = Field.toLookupTrie(Field.parseField(value));
+        assertEquals(FieldType.DATE, trie.child("date").type());
+        assertNull(trie.child("links").type());
+        assertEquals(FieldType.STRING, trie.child("links").child("url").type());
+        assertEquals(FieldType.STRING, trie.child("links.url").type());
+        assertNull(trie.child("url"));
+        assertNull(trie.child("links").child("name"));
+    }
+
     @Test
     public void testBasicParsing() throws Exception {
         Map value = new ObjectMapper().readValue(getClass().getResourceAsStream("basic.json"), Map.class);
@@ -87,4 +101,17 @@ public class FieldTest {
         assertEquals("person", fl.name());
         assertEquals(0, fl.properties().length);
     }
+
+    @Test
+    public void testEncoding() throws Exception {
+        Map value = new ObjectMapper().readValue(getClass().getResourceAsStream("nested.json"), Map.class);
+        Field fl = Field.parseField(value);
+        byte[] data = FieldCodec.encode(fl);
+        Field decoded = FieldCodec.decode(data);
+        assertEquals(fl.toString(), decoded.toString());
+
+        String hash = FieldCodec.hash(data);
+        assertEquals(hash, FieldCodec.hash(FieldCodec.encode(decoded)));
+        assertSame(FieldCodec.decode(hash, data), FieldCodec.decode(hash, data));
+    }
 }
@@ -20,6 +20,7 @@ package org.elasticsearch.hadoop.rest;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.BitSet;
 import java.util.Iterator;
 import java.util.Map;
 
@@ -49,4 +50,35 @@ public class ParseBulkErrorsTest {
             assertTrue(error.contains("document already exists"));
         }
     }
+
+    @Test(expected = IllegalStateException.class)
+    public void testStreamingUnrecoverableError() throws IOException {
+        BulkResponseParser.parse(getClass().getResourceAsStream("bulk-error.json"), new BitSet());
+    }
+
+    @Test
+    public void testStreamingRejectedItems() throws IOException {
+        BitSet rejected = new BitSet();
+        assertTrue(BulkResponseParser.parse(getClass().getResourceAsStream("bulk-error-retry.json"), rejected));
+        assertEquals(5, rejected.cardinality());
+        assertEquals(5, rejected.length());
+    }
+
+    @Test
+    public void testStreamingMixedItems() throws IOException {
+        BitSet rejected = new BitSet();
+        assertTrue(BulkResponseParser.parse(getClass().getResourceAsStream("bulk-mixed.json"), rejected));
+        assertEquals(2, rejected.cardinality());
+        assertFalse(rejected.get(0));
+        assertTrue(rejected.get(1));
+        assertFalse(rejected.get(2));
+        assertTrue(rejected.get(3));
+    }
+
+    @Test
+    public void testStreamingNoErrors() throws IOException {
+        BitSet rejected = new BitSet();
+        assertTrue(BulkResponseParser.parse(getClass().getResourceAsStream("bulk-no-errors.json"), rejected));
+        assertTrue(rejected.isEmpty());
+    }
 }
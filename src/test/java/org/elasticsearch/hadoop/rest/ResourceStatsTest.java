@@ -0,0 +1,93 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.hadoop.rest;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.logging.LogFactory;
+import org.elasticsearch.hadoop.cfg.ConfigurationOptions;
+import org.elasticsearch.hadoop.cfg.InternalConfigurationOptions;
+import org.elasticsearch.hadoop.cfg.Settings;
+import org.elasticsearch.hadoop.rest.dto.ShardStats;
+import org.elasticsearch.hadoop.util.TestSettings;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ResourceStatsTest {
+
+    private static Map<String, Object> stats(long docs, long size) {
+        Map<String, Object> stats = new LinkedHashMap<String, Object>();
+        stats.put("docs", Collections.singletonMap("count", docs));
+        stats.put("store", Collections.singletonMap("size_in_bytes", size));
+        return stats;
+    }
+
+    @Test
+    public void testCacheRoundTrip() throws Exception {
+        String cached = InitializationUtils.toStatsCache(new ShardStats(12, 3456), "foo,bar/baz");
+        ShardStats stats = InitializationUtils.fromStatsCache(cached, "foo,bar/baz");
+        assertEquals(12, stats.getDocs());
+        assertEquals(3456, stats.getSizeInBytes());
+    }
+
+    @Test
+    public void testCacheResourceMismatch() throws Exception {
+        String cached = InitializationUtils.toStatsCache(new ShardStats(12, 3456), "foo/bar");
+        assertNull(InitializationUtils.fromStatsCache(cached, "foo/baz"));
+        assertNull(InitializationUtils.fromStatsCache(cached, "foo"));
+        assertNull(InitializationUtils.fromStatsCache(null, "foo/bar"));
+        assertNull(InitializationUtils.fromStatsCache("12", "foo/bar"));
+    }
+
+    @Test
+    public void testCachedStatsDoNotHitElasticsearch() throws Exception {
+        Settings settings = new TestSettings();
+        settings.setProperty(ConfigurationOptions.ES_RESOURCE, "foo/bar");
+        settings.setProperty(InternalConfigurationOptions.INTERNAL_ES_RESOURCE_STATS, "5,100,foo/bar");
+        // no node is available
+        settings.setProperty(ConfigurationOptions.ES_PORT, "1");
+
+        ShardStats stats = InitializationUtils.resourceStats(settings, LogFactory.getLog(getClass()));
+        assertEquals(5, stats.getDocs());
+        assertEquals(100, stats.getSizeInBytes());
+    }
+
+    @Test
+    public void testPrimariesAreSummed() throws Exception {
+        Map<String, Object> foo = new LinkedHashMap<String, Object>();
+        foo.put("primaries", stats(10, 1000));
+        foo.put("total", stats(20, 2000));
+        Map<String, Object> bar = new LinkedHashMap<String, Object>();
+        bar.put("primaries", stats(5, 500));
+        // index without primaries (e.g. not allocated yet)
+        Map<String, Object> baz = new LinkedHashMap<String, Object>();
+
+        Map<String, Object> indices = new LinkedHashMap<String, Object>();
+        indices.put("foo", foo);
+        indices.put("bar", bar);
+        indices.put("baz", baz);
+
+        ShardStats stats = RestRepository.indexStats(indices);
+        assertEquals(15, stats.getDocs());
+        assertEquals(1500, stats.getSizeInBytes());
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.hadoop.rest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+import org.elasticsearch.hadoop.cfg.ConfigurationOptions;
+import org.elasticsearch.hadoop.cfg.Settings;
+import org.elasticsearch.hadoop.serialization.ScrollReader;
+import org.elasticsearch.hadoop.serialization.SerializationException;
+import org.elasticsearch.hadoop.serialization.builder.JdkValueReader;
+import org.elasticsearch.hadoop.util.StringUtils;
+import org.elasticsearch.hadoop.util.TestSettings;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import static org.junit.Assert.*;
+
+public class ScrollQueryTest {
+
+    private static final int TOTAL = 6;
+    private static final int PAGE = 2;
+
+    // fake node serving [TOTAL] docs, [PAGE] at a time; the [failOn] scroll fails either with an error or a garbled response
+    private static class ScrollHandler implements HttpHandler {
+        volatile String failOn;
+        volatile boolean garbled;
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            String scrollId = read(exchange.getRequestBody());
+            int status = 200;
+            String response;
+
+            if (scrollId.equals(failOn)) {
+                status = (garbled ? 200 : 500);
+                response = (garbled ? "{\"_scroll_id\":\"s9\",\"hits\":{\"total\":" : "{\"error\":\"scroll failure\",\"status\":500}");
+            }
+            else {
+                int current = Integer.parseInt(scrollId.substring(1));
+                StringBuilder hits = new StringBuilder();
+                for (int i = current * PAGE; i < Math.min(TOTAL, (current + 1) * PAGE); i++) {
+                    if (hits.length() > 0) {
+                        hits.append(",");
+                    }
+                    hits.append("{\"_id\":\"").append(i).append("\",\"_source\":{\"n\":").append(i).append("}}");
+                }
+                response = "{\"_scroll_id\":\"s" + (current + 1) + "\",\"hits\":{\"total\":" + TOTAL + ",\"hits\":[" + hits + "]}}";
+            }
+
+            byte[] bytes = response.getBytes(StringUtils.UTF_8);
+            exchange.sendResponseHeaders(status, bytes.length);
+            OutputStream out = exchange.getResponseBody();
+            out.write(bytes);
+            out.close();
+        }
+
+        private static String read(InputStream in) throws IOException {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            for (int read = in.read(buffer); read > 0; read = in.read(buffer)) {
+                bos.write(buffer, 0, read);
+            }
+            return new String(bos.toByteArray(), StringUtils.UTF_8);
+        }
+    }
+
+    private HttpServer server;
+    private ScrollHandler handler;
+
+    @Before
+    public void start() throws Exception {
+        handler = new ScrollHandler();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", handler);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    @After
+    public void stop() {
+        server.stop(0);
+    }
+
+    private ScrollQuery scroll(int prefetch) {
+        Settings settings = new TestSettings();
+        settings.setProperty(ConfigurationOptions.ES_NODES, "127.0.0.1");
+        settings.setProperty(ConfigurationOptions.ES_PORT, String.valueOf(server.getAddress().getPort()));
+        settings.setProperty(ConfigurationOptions.ES_RESOURCE, "foo/bar");
+        return new ScrollQuery(new RestRepository(settings), "s0", TOTAL, new ScrollReader(new JdkValueReader(), null), prefetch, false);
+    }
+
+    // returns the ids read before the scroll failed
+    private static List<Object> drain(ScrollQuery query, List<Object> ids) {
+        while (query.hasNext()) {
+            ids.add(query.next()[0]);
+        }
+        return ids;
+    }
+
+    @Test
+    public void testPrefetchInOrder() throws Exception {
+        for (int prefetch = 0; prefetch < 4; prefetch++) {
+            ScrollQuery query = scroll(prefetch);
+            try {
+                List<Object> ids = drain(query, new ArrayList<Object>());
+                assertEquals(TOTAL, ids.size());
+                for (int i = 0; i < TOTAL; i++) {
+                    assertEquals(String.valueOf(i), ids.get(i));
+                }
+            } finally {
+                query.close();
+            }
+        }
+    }
+
+    @Test
+    public void testPrefetchFailureReportedByNext() throws Exception {
+        handler.failOn = "s1";
+        ScrollQuery query = scroll(2);
+        List<Object> ids = new ArrayList<Object>();
+        try {
+            drain(query, ids);
+            fail("expected the failed page to be reported");
+        } catch (IllegalStateException ex) {
+            // the request failure itself, not a wrapper added by the scroll
+            assertTrue(ex.getMessage(), ex.getMessage().contains("scroll failure"));
+            assertFalse(ex.getMessage(), ex.getMessage().startsWith("Cannot retrieve scroll"));
+        } finally {
+            query.close();
+        }
+        // the page fetched before the failure is fully consumed
+        assertEquals(PAGE, ids.size());
+    }
+
+    @Test
+    public void testPrefetchParsingFailureRethrownAsIs() throws Exception {
+        handler.failOn = "s0";
+        handler.garbled = true;
+        ScrollQuery query = scroll(1);
+        try {
+            // the failure is known once the page is due but surfaces only when consumed
+            assertTrue(query.hasNext());
+            query.next();
+            fail("expected the garbled page to be reported");
+        } catch (SerializationException ex) {
+            // expected
+        }
+
+        // the failure sticks
+        assertTrue(query.hasNext());
+        try {
+            query.next();
+            fail("expected the failure to be reported again");
+        } catch (SerializationException ex) {
+            // expected
+        }
+
+        query.close();
+        assertFalse(query.hasNext());
+    }
+}
@@ -20,9 +20,19 @@ package org.elasticsearch.hadoop.rest;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.elasticsearch.hadoop.cfg.ConfigurationOptions;
+import org.elasticsearch.hadoop.cfg.PropertiesSettings;
+import org.elasticsearch.hadoop.mr.LinkedMapWritable;
+import org.elasticsearch.hadoop.mr.WritableValueReader;
 import org.elasticsearch.hadoop.serialization.ScrollReader;
 import org.elasticsearch.hadoop.serialization.builder.JdkValueReader;
 import org.junit.Test;
@@ -60,4 +70,108 @@ public class ScrollReaderTest {
         Object[] objects = read.get(0);
         assertTrue(((Map) objects[1]).isEmpty());
     }
+
+    @Test
+    public void testScrollId() throws IOException {
+        ScrollReader reader = new ScrollReader(new JdkValueReader(), null);
+        reader.read(getClass().getResourceAsStream("empty-source.json"));
+        assertEquals("c2NhbjsxOzE6MjBLOXo0S1RTcktPNmtmSU44YjJZUTsxO3RvdGFsX2hpdHM6MTk2Ow==", reader.scrollId());
+    }
+
+    @Test
+    public void testStreamHits() throws IOException {
+        ScrollReader reader = new ScrollReader(new JdkValueReader(), null);
+        List<Object[]> read = reader.read(getClass().getResourceAsStream("empty-source.json"));
+
+        reader.open(getClass().getResourceAsStream("empty-source.json"));
+        for (Object[] expected : read) {
+            Object[] hit = reader.nextHit();
+            assertEquals(expected[0], hit[0]);
+            assertEquals(expected[1], hit[1]);
+        }
+        assertNull(reader.nextHit());
+        assertNull(reader.nextHit());
+    }
+
+    @Test
+    public void testNativeValues() throws IOException {
+        // numbers and booleans should be read directly from the parser, without being parsed from text
+        JdkValueReader valueReader = new JdkValueReader() {
+            @Override
+            protected Object parseInteger(String value) {
+                throw new AssertionError("number read as text");
+            }
+
+            @Override
+            protected Object parseLong(String value) {
+                throw new AssertionError("number read as text");
+            }
+
+            @Override
+            protected Object parseDouble(String value) {
+                throw new AssertionError("number read as text");
+            }
+
+            @Override
+            protected Object parseBoolean(String value) {
+                throw new AssertionError("boolean read as text");
+            }
+        };
+
+        ScrollReader reader = new ScrollReader(valueReader, null);
+        List<Object[]> read = reader.read(getClass().getResourceAsStream("scroll-numbers.json"));
+        Map<?, ?> source = (Map<?, ?>) read.get(0)[1];
+        assertEquals(Integer.valueOf(42), source.get("int"));
+        assertEquals(Long.valueOf(9876543210L), source.get("long"));
+        assertEquals(Double.valueOf(2.5), source.get("double"));
+        assertEquals(Boolean.TRUE, source.get("bool"));
+        assertEquals("7", source.get("text"));
+    }
+
+    @Test
+    public void testCanonicalFieldNames() throws IOException {
+        ScrollReader reader = new ScrollReader(new WritableValueReader(), null);
+        Map<?, ?> first = (Map<?, ?>) reader.read(getClass().getResourceAsStream("scroll-numbers.json")).get(0)[1];
+        Map<?, ?> second = (Map<?, ?>) reader.read(getClass().getResourceAsStream("scroll-numbers.json")).get(0)[1];
+
+        Iterator<?> keys = second.keySet().iterator();
+        for (Object key : first.keySet()) {
+            Object other = keys.next();
+            assertEquals(key, other);
+            assertSame(key, other);
+        }
+
+        Text key = (Text) first.keySet().iterator().next();
+        try {
+            key.set("modified");
+            fail("field name keys should be read-only");
+        } catch (UnsupportedOperationException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testReuseObjects() throws IOException {
+        Properties props = new Properties();
+        props.setProperty(ConfigurationOptions.ES_SCROLL_REUSE, "true");
+        WritableValueReader valueReader = new WritableValueReader();
+        valueReader.setSettings(new PropertiesSettings(props));
+        ScrollReader reader = new ScrollReader(valueReader, null);
+
+        LinkedMapWritable target = new LinkedMapWritable();
+        valueReader.recycle(target);
+        reader.open(getClass().getResourceAsStream("scroll-numbers.json"));
+        Object[] hit = reader.nextHit();
+        assertSame(target, hit[1]);
+        Writable number = target.get(new Text("int"));
+        assertEquals(new IntWritable(42), number);
+
+        valueReader.recycle(target);
+        reader.open(getClass().getResourceAsStream("scroll-numbers.json"));
+        hit = reader.nextHit();
+        assertSame(target, hit[1]);
+        assertSame(number, target.get(new Text("int")));
+        assertEquals(new LongWritable(9876543210L), target.get(new Text("long")));
+        assertEquals(new Text("7"), target.get(new Text("text")));
+    }
 }
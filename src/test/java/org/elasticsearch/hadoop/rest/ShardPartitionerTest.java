@@ -0,0 +1,50 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.hadoop.rest;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ShardPartitionerTest {
+
+    @Test
+    public void testHashFilters() {
+        List<String> filters = ShardPartitioner.hashFilters(3);
+        assertEquals(3, filters.size());
+        assertTrue(filters.get(2).contains("\"partitions\":3,\"partition\":2"));
+    }
+
+    @Test
+    public void testRangeFilters() {
+        List<String> filters = ShardPartitioner.rangeFilters("age", 0.5, 100, 4);
+        assertEquals(4, filters.size());
+        assertEquals("{\"or\":[{\"range\":{\"age\":{\"gte\":0,\"lt\":25}}},{\"missing\":{\"field\":\"age\"}}]}", filters.get(0));
+        assertEquals("{\"range\":{\"age\":{\"gte\":25,\"lt\":50}}}", filters.get(1));
+        assertEquals("{\"range\":{\"age\":{\"gte\":75,\"lte\":100}}}", filters.get(3));
+    }
+
+    @Test
+    public void testRangeFiltersNarrowSpan() {
+        assertEquals(2, ShardPartitioner.rangeFilters("age", 1, 3, 10).size());
+        assertEquals(1, ShardPartitioner.rangeFilters("age", 5, 5, 10).size());
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.hadoop.rest;
+
+import org.elasticsearch.cluster.routing.operation.hash.djb.DjbHashFunction;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ShardRoutingTest {
+
+    @Test
+    public void testHashMatchesElasticsearch() throws Exception {
+        DjbHashFunction es = new DjbHashFunction();
+        String[] values = { "", "1", "42", "some-id", "\u00DCn\u00EFc\u00F6d\u00E9", "AVeryLongDocumentIdThatOverflowsTheHash-1234567890" };
+        for (String value : values) {
+            assertEquals(value, es.hash(value), ShardRouting.djbHash(value));
+        }
+    }
+
+    @Test
+    public void testShardIdWithinBounds() throws Exception {
+        for (int i = 0; i < 1000; i++) {
+            int shard = ShardRouting.shardId("id-" + i, 5);
+            assertTrue(shard >= 0 && shard < 5);
+        }
+    }
+
+    @Test
+    public void testSingleShard() throws Exception {
+        assertEquals(0, ShardRouting.shardId("whatever", 1));
+    }
+}
@@ -47,6 +47,8 @@ import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import static org.junit.Assert.*;
+
 import static org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory.*;
 
 public class HiveTypeToJsonTest {
@@ -161,6 +163,23 @@ public class HiveTypeToJsonTest {
                 getStructTypeInfo(names, types)));
     }
 
+    @Test
+    public void testStructWriterReusedAcrossRows() {
+        List<String> names = Arrays.asList(new String[] { "name", "tags", "nested" });
+        List<TypeInfo> types = Arrays.asList(new TypeInfo[] { stringTypeInfo, getListTypeInfo(intTypeInfo),
+                getStructTypeInfo(Arrays.asList("Flag"), Arrays.<TypeInfo> asList(booleanTypeInfo)) });
+        ObjectInspector oi = TypeInfoUtils.getStandardWritableObjectInspectorFromTypeInfo(getStructTypeInfo(names, types));
+
+        HiveValueWriter writer = new HiveValueWriter();
+        ContentBuilder.generate(out, writer).value(new MyHiveType(Arrays.asList(new Object[] { new Text("first"),
+                Arrays.asList(new IntWritable(1), new IntWritable(2)), Arrays.asList(new BooleanWritable(true)) }), oi)).flush().close();
+        assertEquals("{\"name\":\"first\",\"tags\":[1,2],\"nested\":{\"flag\":true}}", out.bytes().toString());
+
+        out.reset();
+        ContentBuilder.generate(out, writer).value(new MyHiveType(Arrays.asList(new Object[] { null, null, null }), oi)).flush().close();
+        assertEquals("{\"name\":null,\"tags\":null,\"nested\":null}", out.bytes().toString());
+    }
+
     private void hiveTypeToJson(HiveType obj) {
         ContentBuilder.generate(out, new HiveValueWriter()).value(obj).flush().close();
         System.out.println(out.bytes());
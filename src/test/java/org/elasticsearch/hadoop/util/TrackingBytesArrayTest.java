@@ -19,6 +19,7 @@
 package org.elasticsearch.hadoop.util;
 
 import java.io.ByteArrayOutputStream;
+import java.util.BitSet;
 
 import org.junit.After;
 import org.junit.Before;
@@ -61,6 +62,7 @@ public class TrackingBytesArrayTest {
         assertEquals(8, data.length());
     }
 
+    @SuppressWarnings("deprecation")
     @Test
     public void testRemoveSize() throws Exception {
         assertEquals(0, data.length());
@@ -85,6 +87,7 @@ public class TrackingBytesArrayTest {
         assertEquals("abb", out.toString());
     }
 
+    @SuppressWarnings("deprecation")
     @Test
     public void testWriteAfterRemoving() throws Exception {
         data.copyFrom(new BytesArray("a"));
@@ -97,4 +100,64 @@ public class TrackingBytesArrayTest {
         data.writeTo(out);
         assertEquals("accc", out.toString());
     }
+
+    @Test
+    public void testRetain() throws Exception {
+        data.copyFrom(new BytesArray("a"));
+        data.copyFrom(new BytesArray("bb"));
+        data.copyFrom(new BytesArray("ccc"));
+        data.copyFrom(new BytesArray("dddd"));
+
+        BitSet positions = new BitSet();
+        positions.set(1);
+        positions.set(3);
+        data.retain(positions);
+        assertEquals(6, data.length());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        data.writeTo(out);
+        assertEquals("bbdddd", out.toString());
+    }
+
+    @SuppressWarnings("deprecation")
+    @Test
+    public void testRetainAfterRemoving() throws Exception {
+        data.copyFrom(new BytesArray("a"));
+        data.copyFrom(new BytesArray("bb"));
+        data.copyFrom(new BytesArray("ccc"));
+        data.copyFrom(new BytesArray("dddd"));
+
+        data.remove(0);
+        // positions are relative to the remaining entries (bb, ccc, dddd)
+        BitSet positions = new BitSet();
+        positions.set(0);
+        positions.set(2);
+        data.retain(positions);
+        assertEquals(6, data.length());
+        assertEquals("bbdddd", data.toString());
+
+        // and once more
+        positions.clear();
+        positions.set(1);
+        data.retain(positions);
+        assertEquals("dddd", data.toString());
+    }
+
+    @Test
+    public void testManyEntries() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            data.copyFrom(new BytesArray("x"));
+        }
+        assertEquals(100, data.length());
+        BitSet odd = new BitSet();
+        for (int i = 1; i < 100; i += 2) {
+            odd.set(i);
+        }
+        data.retain(odd);
+        assertEquals(50, data.length());
+
+        data.reset();
+        assertEquals(0, data.length());
+        assertEquals("", data.toString());
+    }
 }
\ No newline at end of file